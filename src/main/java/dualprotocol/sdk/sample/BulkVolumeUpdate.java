@@ -0,0 +1,277 @@
+// Copyright (c) Microsoft and contributors.  All rights reserved.
+//
+// This source code is licensed under the MIT license found in the
+// LICENSE file in the root directory of this source tree.
+
+package dualprotocol.sdk.sample;
+
+import com.azure.resourcemanager.netapp.fluent.NetAppManagementClient;
+import com.azure.resourcemanager.netapp.fluent.models.CapacityPoolInner;
+import com.azure.resourcemanager.netapp.fluent.models.VolumeInner;
+import com.azure.resourcemanager.netapp.models.VolumePatch;
+import com.azure.resourcemanager.netapp.models.VolumePatchPropertiesDataProtection;
+import com.azure.resourcemanager.netapp.models.VolumeSnapshotProperties;
+import dualprotocol.sdk.sample.common.ResourceUriUtils;
+import dualprotocol.sdk.sample.common.Utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+// Queues changes for many Volumes and applies them with a single PATCH per Volume
+public class BulkVolumeUpdate
+{
+    private final Map<String, PendingChange> pendingChanges = new LinkedHashMap<>();
+
+    /**
+     * Lists the Volumes of an Account that match a filter
+     * @param anfClient Azure NetApp Files Management Client
+     * @param accountParams Contains resource group and Account name to search
+     * @param filter Conditions the Volumes must meet
+     * @return Matching Volumes
+     */
+    public static List<VolumeInner> findVolumes(NetAppManagementClient anfClient, String[] accountParams, VolumeFilter filter)
+    {
+        List<VolumeInner> volumes = new ArrayList<>();
+        for (CapacityPoolInner pool : anfClient.getPools().list(accountParams[0], accountParams[1]))
+        {
+            String poolName = ResourceUriUtils.getAnfCapacityPool(pool.id());
+            if (filter.poolName != null && !filter.poolName.equalsIgnoreCase(poolName))
+            {
+                continue;
+            }
+
+            for (VolumeInner volume : anfClient.getVolumes().list(accountParams[0], accountParams[1], poolName))
+            {
+                if (filter.matches(volume))
+                {
+                    volumes.add(volume);
+                }
+            }
+        }
+
+        return volumes;
+    }
+
+    /**
+     * Queues the assignment of a Snapshot Policy to a Volume
+     * @param volume Volume as returned by the service
+     * @param snapshotPolicyId Resource id of the Snapshot Policy
+     */
+    public void queueSnapshotPolicy(VolumeInner volume, String snapshotPolicyId)
+    {
+        pendingChange(volume).snapshotPolicyId = snapshotPolicyId;
+    }
+
+    /**
+     * Queues tags to be added to, or overwritten on, a Volume. Existing tags with other keys are preserved
+     * @param volume Volume as returned by the service
+     * @param tags Tags to set
+     */
+    public void queueTags(VolumeInner volume, Map<String, String> tags)
+    {
+        pendingChange(volume).tags.putAll(tags);
+    }
+
+    /**
+     * @return Number of Volumes with queued changes
+     */
+    public int size()
+    {
+        return pendingChanges.size();
+    }
+
+    /**
+     * Sends one PATCH per Volume with all of its queued changes, running up to the given number of PATCHes at once.
+     * Volumes that already have the requested values are skipped and a failed PATCH does not stop the others;
+     * failures are collected in the result for the caller to report
+     * @param anfClient Azure NetApp Files Management Client
+     * @param concurrency Maximum number of PATCHes in flight
+     * @return Outcome of the update
+     */
+    public Result apply(NetAppManagementClient anfClient, int concurrency)
+    {
+        Result result = new Result();
+        List<PendingChange> changes = new ArrayList<>(pendingChanges.values());
+        pendingChanges.clear();
+
+        int total = changes.size();
+        int reportEvery = Math.max(1, total / 20);
+        AtomicInteger completed = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(concurrency, total)));
+        try
+        {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (PendingChange change : changes)
+            {
+                futures.add(CompletableFuture.runAsync(() -> {
+                    String volumeId = change.volume.id();
+                    try
+                    {
+                        VolumePatch patch = change.toPatch();
+                        if (patch == null)
+                        {
+                            result.skipped.incrementAndGet();
+                        }
+                        else
+                        {
+                            anfClient.getVolumes().update(ResourceUriUtils.getResourceGroup(volumeId),
+                                    ResourceUriUtils.getAnfAccount(volumeId),
+                                    ResourceUriUtils.getAnfCapacityPool(volumeId),
+                                    ResourceUriUtils.getAnfVolume(volumeId),
+                                    patch);
+                            result.updated.incrementAndGet();
+                        }
+                    }
+                    catch (Exception e)
+                    {
+                        result.failures.put(volumeId, String.valueOf(e.getMessage()));
+                    }
+
+                    int done = completed.incrementAndGet();
+                    if (done % reportEvery == 0 || done == total)
+                    {
+                        Utils.writeConsoleMessage("Processed " + done + "/" + total + " Volumes");
+                    }
+                }, executor));
+            }
+
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        return result;
+    }
+
+    private PendingChange pendingChange(VolumeInner volume)
+    {
+        return pendingChanges.computeIfAbsent(volume.id().toLowerCase(), k -> new PendingChange(volume));
+    }
+
+    /**
+     * Conditions used to select Volumes. Conditions left null are ignored
+     */
+    public static class VolumeFilter
+    {
+        private final String poolName;
+        private final Map<String, String> tags;
+        private final Pattern namePattern;
+
+        /**
+         * @param poolName Capacity Pool the Volumes must belong to, or null for all pools
+         * @param tags Tags the Volumes must have with exactly these values, may be empty
+         * @param namePattern Regular expression the Volume name must fully match, or null for any name
+         */
+        public VolumeFilter(String poolName, Map<String, String> tags, String namePattern)
+        {
+            this.poolName = poolName;
+            this.tags = tags;
+            this.namePattern = namePattern == null ? null : Pattern.compile(namePattern);
+        }
+
+        public boolean matches(VolumeInner volume)
+        {
+            if (namePattern != null && !namePattern.matcher(ResourceUriUtils.getAnfVolume(volume.id())).matches())
+            {
+                return false;
+            }
+
+            for (Map.Entry<String, String> tag : tags.entrySet())
+            {
+                if (volume.tags() == null || !tag.getValue().equals(volume.tags().get(tag.getKey())))
+                {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    /**
+     * Counts of updated and skipped Volumes, and the error message of each Volume that failed
+     */
+    public static class Result
+    {
+        private final AtomicInteger updated = new AtomicInteger();
+        private final AtomicInteger skipped = new AtomicInteger();
+        private final Map<String, String> failures = new ConcurrentHashMap<>();
+
+        public int getUpdated()
+        {
+            return updated.get();
+        }
+
+        public int getSkipped()
+        {
+            return skipped.get();
+        }
+
+        public Map<String, String> getFailures()
+        {
+            return failures;
+        }
+    }
+
+    private static class PendingChange
+    {
+        private final VolumeInner volume;
+        private final Map<String, String> tags = new LinkedHashMap<>();
+        private String snapshotPolicyId;
+
+        PendingChange(VolumeInner volume)
+        {
+            this.volume = volume;
+        }
+
+        /**
+         * Builds the PATCH body, or returns null if the Volume already has every queued value
+         */
+        VolumePatch toPatch()
+        {
+            VolumePatch patch = new VolumePatch();
+            boolean changed = false;
+
+            Map<String, String> currentTags = volume.tags() == null ? new HashMap<>() : volume.tags();
+            if (!tags.isEmpty() && !currentTags.entrySet().containsAll(tags.entrySet()))
+            {
+                // Tags are replaced as a whole by a PATCH, so existing ones have to be sent along
+                Map<String, String> mergedTags = new HashMap<>(currentTags);
+                mergedTags.putAll(tags);
+                patch.withTags(mergedTags);
+                changed = true;
+            }
+
+            if (snapshotPolicyId != null && !snapshotPolicyId.equalsIgnoreCase(currentSnapshotPolicyId()))
+            {
+                patch.withDataProtection(new VolumePatchPropertiesDataProtection()
+                        .withSnapshot(new VolumeSnapshotProperties().withSnapshotPolicyId(snapshotPolicyId)));
+                changed = true;
+            }
+
+            return changed ? patch : null;
+        }
+
+        private String currentSnapshotPolicyId()
+        {
+            if (volume.dataProtection() == null || volume.dataProtection().snapshot() == null)
+            {
+                return null;
+            }
+
+            return volume.dataProtection().snapshot().snapshotPolicyId();
+        }
+    }
+}
@@ -9,7 +9,9 @@ import com.azure.core.exception.AzureException;
 import com.azure.resourcemanager.netapp.fluent.NetAppManagementClient;
 import com.azure.resourcemanager.netapp.fluent.models.CapacityPoolInner;
 import com.azure.resourcemanager.netapp.fluent.models.NetAppAccountInner;
+import com.azure.resourcemanager.netapp.fluent.models.SnapshotPolicyInner;
 import com.azure.resourcemanager.netapp.fluent.models.VolumeInner;
+import com.azure.resourcemanager.netapp.models.SnapshotPolicyPatch;
 import dualprotocol.sdk.sample.common.Utils;
 
 public class Creation
@@ -60,6 +62,52 @@ public class Creation
         }
     }
 
+    /**
+     * Creates a Snapshot Policy
+     * @param anfClient Azure NetApp Files Management Client
+     * @param snapshotPolicyParams Contains resource group, Account name, and Snapshot Policy name to use
+     * @param snapshotPolicyBody The Snapshot Policy body used in the creation
+     * @return The newly created Snapshot Policy
+     */
+    public static SnapshotPolicyInner createSnapshotPolicy(NetAppManagementClient anfClient, String[] snapshotPolicyParams, SnapshotPolicyInner snapshotPolicyBody)
+    {
+        try
+        {
+            SnapshotPolicyInner snapshotPolicy = anfClient.getSnapshotPolicies().create(snapshotPolicyParams[0], snapshotPolicyParams[1], snapshotPolicyParams[2], snapshotPolicyBody);
+            Utils.writeSuccessMessage("Snapshot Policy successfully created, resourceId: " + snapshotPolicy.id());
+
+            return snapshotPolicy;
+        }
+        catch (AzureException e)
+        {
+            Utils.writeConsoleMessage("An error occurred while creating snapshot policy: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Updates an existing Snapshot Policy with a PATCH, so properties left out of the body are kept as they are
+     * @param anfClient Azure NetApp Files Management Client
+     * @param snapshotPolicyParams Contains resource group, Account name, and Snapshot Policy name to update
+     * @param snapshotPolicyPatch The properties to change
+     * @return The updated Snapshot Policy
+     */
+    public static SnapshotPolicyInner updateSnapshotPolicy(NetAppManagementClient anfClient, String[] snapshotPolicyParams, SnapshotPolicyPatch snapshotPolicyPatch)
+    {
+        try
+        {
+            SnapshotPolicyInner snapshotPolicy = anfClient.getSnapshotPolicies().update(snapshotPolicyParams[0], snapshotPolicyParams[1], snapshotPolicyParams[2], snapshotPolicyPatch);
+            Utils.writeSuccessMessage("Snapshot Policy successfully updated, resourceId: " + snapshotPolicy.id());
+
+            return snapshotPolicy;
+        }
+        catch (AzureException e)
+        {
+            Utils.writeConsoleMessage("An error occurred while updating snapshot policy: " + e.getMessage());
+            throw e;
+        }
+    }
+
     /**
      * Creates a Dual-Protocol Volume
      * @param anfClient Azure NetApp Files Management Client
@@ -0,0 +1,573 @@
+// Copyright (c) Microsoft and contributors.  All rights reserved.
+//
+// This source code is licensed under the MIT license found in the
+// LICENSE file in the root directory of this source tree.
+
+package dualprotocol.sdk.sample;
+
+import com.azure.resourcemanager.netapp.fluent.NetAppManagementClient;
+import com.azure.resourcemanager.netapp.fluent.models.CapacityPoolInner;
+import com.azure.resourcemanager.netapp.fluent.models.NetAppAccountInner;
+import com.azure.resourcemanager.netapp.fluent.models.VolumeInner;
+import com.azure.resourcemanager.netapp.models.ActiveDirectory;
+import com.azure.resourcemanager.netapp.models.SecurityStyle;
+import com.azure.resourcemanager.netapp.models.ServiceLevel;
+import dualprotocol.sdk.sample.common.CommonSdk;
+import dualprotocol.sdk.sample.common.Utils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+// Streams Volume requests from a CSV or NDJSON file and provisions them through a bounded queue of workers
+public class ProvisioningPipeline
+{
+    private static final Runnable STOP = () -> {};
+
+    private final NetAppManagementClient anfClient;
+    private final int workers;
+    private final int queueCapacity;
+    private final Supplier<ActiveDirectory> activeDirectorySupplier;
+    private final Provisioner provisioner;
+    private final Map<String, CompletableFuture<Void>> parents = new ConcurrentHashMap<>();
+    private final Map<String, String> accountSmbServerNames = new ConcurrentHashMap<>();
+
+    /**
+     * @param anfClient Azure NetApp Files Management Client
+     * @param workers Number of Volumes created at once
+     * @param queueCapacity Number of validated requests waiting for a worker before reading the file pauses
+     * @param activeDirectorySupplier Supplies the Active Directory connection, without SMB server name, for Accounts
+     *                                that host CIFS Volumes and have none yet. Called at most once; may be null if no
+     *                                such Account is expected
+     */
+    public ProvisioningPipeline(NetAppManagementClient anfClient, int workers, int queueCapacity, Supplier<ActiveDirectory> activeDirectorySupplier)
+    {
+        this.anfClient = anfClient;
+        this.workers = Math.max(1, workers);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.activeDirectorySupplier = activeDirectorySupplier == null ? null : memoize(activeDirectorySupplier);
+        this.provisioner = this::provision;
+    }
+
+    /**
+     * Runs the pipeline with another provisioning step, so reading, queueing and result ordering can be exercised on their own
+     */
+    ProvisioningPipeline(int workers, int queueCapacity, Provisioner provisioner)
+    {
+        this.anfClient = null;
+        this.workers = Math.max(1, workers);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.activeDirectorySupplier = null;
+        this.provisioner = provisioner;
+    }
+
+    /**
+     * Reads the input file line by line and writes one result line per input line, in input order. Only the lines
+     * currently queued or being provisioned are held in memory: reading pauses while the queue is full. Bad lines and
+     * failed Volumes are reported in the results and do not stop the stream. CIFS lines whose smbServerNamePrefix
+     * differs from the one already used for their Account are reported as invalid. The first non-blank line of a CSV
+     * file is its header: unknown columns are ignored, and if the header is unusable every later line is invalid
+     * @param inputFile CSV file with a header line, or NDJSON file with one JSON object per line
+     * @param resultFile File receiving line,status,detail for every input line
+     * @param json True if the input is NDJSON, false if it is CSV
+     * @return Number of lines per status
+     * @throws IOException if the input cannot be read or a result cannot be written, in which case reading stops
+     */
+    public Map<String, Integer> run(Path inputFile, Path resultFile, boolean json) throws IOException, InterruptedException
+    {
+        try (BufferedReader reader = Files.newBufferedReader(inputFile, StandardCharsets.UTF_8);
+             BufferedWriter writer = Files.newBufferedWriter(resultFile, StandardCharsets.UTF_8))
+        {
+            return run(reader, writer, json);
+        }
+    }
+
+    Map<String, Integer> run(BufferedReader reader, BufferedWriter writer, boolean json) throws IOException, InterruptedException
+    {
+        // Reading blocks on put while the queue is full, which is the backpressure on the file
+        BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(queueCapacity);
+        // One permit per line that is read but not written yet, bounding the results held back for ordering
+        Semaphore unwritten = new Semaphore(workers + queueCapacity);
+        // SMB server name prefix claimed by the first CIFS line of each Account, in file order
+        Map<String, String> smbServerNamePrefixes = new HashMap<>();
+
+        List<Thread> workerThreads = new ArrayList<>();
+        for (int i = 0; i < workers; i++)
+        {
+            Thread worker = new Thread(() -> runWorker(queue), "provisioning-worker-" + i);
+            worker.start();
+            workerThreads.add(worker);
+        }
+
+        try
+        {
+            ResultWriter results = new ResultWriter(writer, unwritten);
+            boolean headerRead = false;
+            List<String> header = null;
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                lineNumber++;
+                unwritten.acquire();
+                if (results.getFailure() != null)
+                {
+                    break;
+                }
+
+                if (line.isBlank())
+                {
+                    results.complete(lineNumber, "skipped", "blank line");
+                    continue;
+                }
+
+                if (!json && !headerRead)
+                {
+                    // Only the first non-blank line is a header candidate, a bad one is not retried on later lines
+                    headerRead = true;
+                    try
+                    {
+                        List<String> ignored = new ArrayList<>();
+                        header = parseHeader(line, ignored);
+                        if (!ignored.isEmpty())
+                        {
+                            Utils.writeWarningMessage("Ignoring unknown columns " + ignored + ", known columns are " + ProvisioningRequest.FIELDS);
+                        }
+                        results.complete(lineNumber, "header", ignored.isEmpty() ? "" : "ignored columns: " + String.join(" ", ignored));
+                    }
+                    catch (RuntimeException e)
+                    {
+                        results.complete(lineNumber, "invalid", e.getMessage());
+                    }
+                    continue;
+                }
+
+                ProvisioningRequest request;
+                try
+                {
+                    if (!json && header == null)
+                    {
+                        throw new IllegalArgumentException("no valid header");
+                    }
+
+                    request = json ? ProvisioningRequest.fromJson(line) : ProvisioningRequest.fromCsv(header, line);
+                    request.validate();
+                    claimSmbServerNamePrefix(request, smbServerNamePrefixes);
+                }
+                catch (RuntimeException e)
+                {
+                    results.complete(lineNumber, "invalid", e.getMessage());
+                    continue;
+                }
+
+                long requestLine = lineNumber;
+                queue.put(() -> {
+                    // Nothing more can be recorded once writing failed, so nothing more is provisioned
+                    if (results.getFailure() != null)
+                    {
+                        return;
+                    }
+
+                    try
+                    {
+                        Outcome outcome = provisioner.provision(request);
+                        results.complete(requestLine, outcome.status, outcome.detail);
+                    }
+                    catch (IllegalArgumentException e)
+                    {
+                        results.complete(requestLine, "invalid", e.getMessage());
+                    }
+                    catch (Exception e)
+                    {
+                        results.complete(requestLine, "failed", e.getMessage());
+                    }
+                });
+            }
+
+            for (int i = 0; i < workers; i++)
+            {
+                queue.put(STOP);
+            }
+            for (Thread worker : workerThreads)
+            {
+                worker.join();
+            }
+
+            if (results.getFailure() != null)
+            {
+                throw new IOException("Could not write results, stopped reading at line " + lineNumber, results.getFailure());
+            }
+
+            return results.getCounts();
+        }
+        finally
+        {
+            for (Thread worker : workerThreads)
+            {
+                worker.interrupt();
+            }
+        }
+    }
+
+    private static void runWorker(BlockingQueue<Runnable> queue)
+    {
+        try
+        {
+            Runnable task;
+            while ((task = queue.take()) != STOP)
+            {
+                try
+                {
+                    task.run();
+                }
+                catch (RuntimeException e)
+                {
+                    // Keep the worker alive so the reader never blocks on a queue nobody drains
+                    Utils.writeErrorMessage("Provisioning worker error - " + e.getMessage());
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The SMB server name is a property of the Account's Active Directory connection, so all CIFS lines of an Account
+     * must use the same prefix. The first CIFS line of an Account in the file claims it
+     */
+    private static void claimSmbServerNamePrefix(ProvisioningRequest request, Map<String, String> smbServerNamePrefixes)
+    {
+        if (!request.isSmb())
+        {
+            return;
+        }
+
+        String claimed = smbServerNamePrefixes.putIfAbsent(accountKey(request), request.getSmbServerNamePrefix());
+        if (claimed != null && !claimed.equalsIgnoreCase(request.getSmbServerNamePrefix()))
+        {
+            throw new IllegalArgumentException("smbServerNamePrefix " + request.getSmbServerNamePrefix()
+                    + " conflicts with " + claimed + " already used for Account " + request.getAccount());
+        }
+    }
+
+    private Outcome provision(ProvisioningRequest request)
+    {
+        ensureAccount(request);
+        ensurePool(request);
+
+        String[] volumeParams = {request.getResourceGroup(), request.getAccount(), request.getPool(), request.getVolume()};
+        VolumeInner existing = (VolumeInner) CommonSdk.getExistingResource(anfClient, volumeParams, VolumeInner.class);
+        if (existing != null)
+        {
+            return new Outcome("exists", existing.id());
+        }
+
+        VolumeInner newVolume = new VolumeInner();
+        newVolume.withLocation(request.getLocation());
+        newVolume.withServiceLevel(ServiceLevel.fromString(request.getServiceLevel()));
+        newVolume.withCreationToken(request.getCreationToken());
+        newVolume.withSubnetId(request.getSubnetId());
+        newVolume.withUsageThreshold(request.getVolumeSize());
+        newVolume.withProtocolTypes(request.getProtocolTypes());
+        newVolume.withSecurityStyle(SecurityStyle.fromString(request.getSecurityStyle()));
+
+        VolumeInner volume = Creation.createVolume(anfClient, volumeParams, newVolume);
+        return new Outcome("created", volume.id());
+    }
+
+    private void ensureAccount(ProvisioningRequest request)
+    {
+        String key = accountKey(request);
+        String[] accountParams = {request.getResourceGroup(), request.getAccount()};
+        ensureParent(key, () -> {
+            if (CommonSdk.getExistingResource(anfClient, accountParams, NetAppAccountInner.class) != null)
+            {
+                return;
+            }
+
+            NetAppAccountInner newAccount = new NetAppAccountInner();
+            newAccount.withLocation(request.getLocation());
+            if (request.isSmb() && activeDirectorySupplier != null)
+            {
+                newAccount.withActiveDirectories(Collections.singletonList(newActiveDirectory(request.getSmbServerNamePrefix())));
+            }
+
+            Creation.createANFAccount(anfClient, accountParams, newAccount);
+        });
+
+        if (!request.isSmb())
+        {
+            return;
+        }
+
+        // The Account may have been created by an NFS-only line, or exist already without Active Directory
+        ensureParent(key + "#activeDirectory", () -> {
+            NetAppAccountInner account = (NetAppAccountInner) CommonSdk.getExistingResource(anfClient, accountParams, NetAppAccountInner.class);
+            if (account == null)
+            {
+                throw new IllegalStateException("Account " + request.getAccount() + " not found");
+            }
+
+            if (account.activeDirectories() != null && !account.activeDirectories().isEmpty())
+            {
+                accountSmbServerNames.put(key, String.valueOf(account.activeDirectories().get(0).smbServerName()));
+                return;
+            }
+
+            if (activeDirectorySupplier == null)
+            {
+                throw new IllegalStateException("Active Directory settings are required for CIFS Volumes in Account " + request.getAccount());
+            }
+
+            NetAppAccountInner updatedAccount = new NetAppAccountInner();
+            updatedAccount.withLocation(account.location());
+            updatedAccount.withTags(account.tags());
+            updatedAccount.withActiveDirectories(Collections.singletonList(newActiveDirectory(request.getSmbServerNamePrefix())));
+            Creation.createANFAccount(anfClient, accountParams, updatedAccount);
+            accountSmbServerNames.put(key, request.getSmbServerNamePrefix());
+        });
+
+        String smbServerName = accountSmbServerNames.get(key);
+        if (!request.getSmbServerNamePrefix().equalsIgnoreCase(smbServerName))
+        {
+            throw new IllegalArgumentException("smbServerNamePrefix " + request.getSmbServerNamePrefix()
+                    + " conflicts with " + smbServerName + " used by Account " + request.getAccount());
+        }
+    }
+
+    private ActiveDirectory newActiveDirectory(String smbServerNamePrefix)
+    {
+        ActiveDirectory template = activeDirectorySupplier.get();
+        ActiveDirectory activeDirectory = new ActiveDirectory();
+        activeDirectory.withUsername(template.username());
+        activeDirectory.withPassword(template.password());
+        activeDirectory.withDns(template.dns());
+        activeDirectory.withDomain(template.domain());
+        activeDirectory.withServerRootCACertificate(template.serverRootCACertificate());
+        activeDirectory.withSmbServerName(smbServerNamePrefix);
+        return activeDirectory;
+    }
+
+    private void ensurePool(ProvisioningRequest request)
+    {
+        String key = accountKey(request) + "/" + request.getPool().toLowerCase();
+        ensureParent(key, () -> {
+            String[] poolParams = {request.getResourceGroup(), request.getAccount(), request.getPool()};
+            if (CommonSdk.getExistingResource(anfClient, poolParams, CapacityPoolInner.class) != null)
+            {
+                return;
+            }
+
+            CapacityPoolInner newCapacityPool = new CapacityPoolInner();
+            newCapacityPool.withServiceLevel(ServiceLevel.fromString(request.getServiceLevel()));
+            newCapacityPool.withSize(request.getPoolSize());
+            newCapacityPool.withLocation(request.getLocation());
+
+            Creation.createCapacityPool(anfClient, poolParams, newCapacityPool);
+        });
+    }
+
+    /**
+     * Runs the creation of a parent resource once per key. Workers needing a parent that is being created wait for it,
+     * and if the creation failed every Volume under that parent fails with the same error
+     */
+    private void ensureParent(String key, Runnable creation)
+    {
+        CompletableFuture<Void> created = new CompletableFuture<>();
+        CompletableFuture<Void> existing = parents.putIfAbsent(key, created);
+        if (existing == null)
+        {
+            try
+            {
+                creation.run();
+                created.complete(null);
+            }
+            catch (RuntimeException e)
+            {
+                created.completeExceptionally(e);
+            }
+            existing = created;
+        }
+
+        try
+        {
+            existing.join();
+        }
+        catch (RuntimeException e)
+        {
+            Throwable cause = e.getCause() == null ? e : e.getCause();
+            throw new IllegalStateException("Parent resource " + key + " could not be created: " + cause.getMessage());
+        }
+    }
+
+    private static String accountKey(ProvisioningRequest request)
+    {
+        return (request.getResourceGroup() + "/" + request.getAccount()).toLowerCase();
+    }
+
+    /**
+     * Maps each column of the header to a request field. Unknown columns are kept as null so their values are ignored
+     * @param line First non-blank line of a CSV file
+     * @param ignored Receives the names of the unknown columns
+     * @return Field name per column, null for unknown columns
+     * @throws IllegalArgumentException if no column is known or a known column is repeated
+     */
+    static List<String> parseHeader(String line, List<String> ignored)
+    {
+        List<String> header = new ArrayList<>();
+        for (String field : ProvisioningRequest.splitCsv(line))
+        {
+            String column = field.trim();
+            if (!ProvisioningRequest.FIELDS.contains(column))
+            {
+                ignored.add(column);
+                header.add(null);
+            }
+            else if (header.contains(column))
+            {
+                throw new IllegalArgumentException("Column " + column + " is repeated in the header");
+            }
+            else
+            {
+                header.add(column);
+            }
+        }
+
+        if (header.stream().allMatch(Objects::isNull))
+        {
+            throw new IllegalArgumentException("Header has none of the columns " + ProvisioningRequest.FIELDS);
+        }
+
+        return header;
+    }
+
+    private static <T> Supplier<T> memoize(Supplier<T> supplier)
+    {
+        return new Supplier<>()
+        {
+            private T value;
+
+            @Override
+            public synchronized T get()
+            {
+                if (value == null)
+                {
+                    value = supplier.get();
+                }
+                return value;
+            }
+        };
+    }
+
+    /**
+     * Provisions one validated request. An IllegalArgumentException reports the line as invalid, any other exception as failed
+     */
+    interface Provisioner
+    {
+        Outcome provision(ProvisioningRequest request);
+    }
+
+    /**
+     * Status and detail written to the result file for a provisioned line
+     */
+    static class Outcome
+    {
+        private final String status;
+        private final String detail;
+
+        Outcome(String status, String detail)
+        {
+            this.status = status;
+            this.detail = detail;
+        }
+    }
+
+    /**
+     * Writes results in input line order. Results that complete ahead of an earlier line are held until that line is
+     * written; the permit of each line is released once it is written. The first write error is kept, later results are
+     * dropped, and one permit is released so a reader waiting for one wakes up and sees the error
+     */
+    private static class ResultWriter
+    {
+        private final BufferedWriter writer;
+        private final Semaphore inFlight;
+        private final Map<Long, String> pending = new HashMap<>();
+        private final Map<String, Integer> counts = new ConcurrentHashMap<>();
+        private long nextLine = 1;
+        private volatile IOException failure;
+
+        ResultWriter(BufferedWriter writer, Semaphore inFlight) throws IOException
+        {
+            this.writer = writer;
+            this.inFlight = inFlight;
+            writer.write("line,status,detail");
+            writer.newLine();
+        }
+
+        synchronized void complete(long lineNumber, String status, String detail)
+        {
+            if (failure != null)
+            {
+                return;
+            }
+
+            counts.merge(status, 1, Integer::sum);
+            pending.put(lineNumber, lineNumber + "," + status + "," + quote(detail));
+
+            try
+            {
+                String result;
+                while ((result = pending.remove(nextLine)) != null)
+                {
+                    writer.write(result);
+                    writer.newLine();
+                    nextLine++;
+                    inFlight.release();
+                }
+                writer.flush();
+            }
+            catch (IOException e)
+            {
+                failure = e;
+                inFlight.release();
+            }
+        }
+
+        IOException getFailure()
+        {
+            return failure;
+        }
+
+        Map<String, Integer> getCounts()
+        {
+            return counts;
+        }
+
+        private static String quote(String value)
+        {
+            if (value == null)
+            {
+                return "";
+            }
+
+            return "\"" + value.replace("\r", " ").replace("\n", " ").replace("\"", "\"\"") + "\"";
+        }
+    }
+}
@@ -0,0 +1,362 @@
+// Copyright (c) Microsoft and contributors.  All rights reserved.
+//
+// This source code is licensed under the MIT license found in the
+// LICENSE file in the root directory of this source tree.
+
+package dualprotocol.sdk.sample;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+// A single Volume request read from a CSV or NDJSON provisioning file
+public class ProvisioningRequest
+{
+    public static final List<String> FIELDS = List.of("resourceGroup", "location", "account", "pool", "serviceLevel", "poolSizeTiB",
+            "volume", "creationToken", "sizeGiB", "protocolTypes", "subnetId", "smbServerNamePrefix", "securityStyle");
+
+    private static final long GIB = 1024L * 1024 * 1024;
+    private static final long TIB = 1024L * GIB;
+    private static final long MIN_VOLUME_SIZE_GIB = 100;         // 100GiB - volume minimum size
+    private static final long MAX_VOLUME_SIZE_GIB = 100 * 1024;  // 100TiB - volume maximum size
+    private static final long MIN_POOL_SIZE_TIB = 4;             // 4TiB - capacity pool minimum size
+    private static final int MAX_SMB_SERVER_NAME_PREFIX_LENGTH = 10;
+
+    private static final Pattern ACCOUNT_NAME = Pattern.compile("[a-zA-Z0-9][a-zA-Z0-9\\-_]{0,127}");
+    private static final Pattern POOL_OR_VOLUME_NAME = Pattern.compile("[a-zA-Z][a-zA-Z0-9\\-_]{0,63}");
+    private static final Pattern CREATION_TOKEN = Pattern.compile("[a-zA-Z][a-zA-Z0-9\\-]{0,79}");
+    private static final Set<String> PROTOCOL_TYPES = Set.of("NFSv3", "NFSv4.1", "CIFS");
+    private static final Set<String> SERVICE_LEVELS = Set.of("Standard", "Premium", "Ultra");
+    private static final Set<String> SECURITY_STYLES = Set.of("ntfs", "unix");
+
+    private final Map<String, String> values;
+    private final List<String> protocolTypes;
+
+    private ProvisioningRequest(Map<String, String> values, List<String> protocolTypes)
+    {
+        this.values = values;
+        this.protocolTypes = protocolTypes;
+    }
+
+    /**
+     * Parses a CSV line. Fields may be quoted with double quotes; protocol types are separated by semicolons
+     * @param header Field name of each column from the header line, null for columns to ignore
+     * @param line Line to parse
+     * @return Parsed, not yet validated, request
+     */
+    public static ProvisioningRequest fromCsv(List<String> header, String line)
+    {
+        List<String> fields = splitCsv(line);
+        if (fields.size() > header.size())
+        {
+            throw new IllegalArgumentException("Expected at most " + header.size() + " fields but found " + fields.size());
+        }
+
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < fields.size(); i++)
+        {
+            if (header.get(i) != null && FIELDS.contains(header.get(i)))
+            {
+                values.put(header.get(i), fields.get(i));
+            }
+        }
+
+        return new ProvisioningRequest(values, splitProtocolTypes(values.get("protocolTypes")));
+    }
+
+    /**
+     * Parses a JSON object line. Protocol types may be a JSON array or a semicolon separated string
+     * @param line Line to parse
+     * @return Parsed, not yet validated, request
+     */
+    public static ProvisioningRequest fromJson(String line)
+    {
+        try
+        {
+            JsonObject json = JsonParser.parseString(line).getAsJsonObject();
+
+            Map<String, String> values = new HashMap<>();
+            List<String> protocolTypes = new ArrayList<>();
+            for (Map.Entry<String, JsonElement> entry : json.entrySet())
+            {
+                if (entry.getValue().isJsonNull())
+                {
+                    continue;
+                }
+
+                if ("protocolTypes".equals(entry.getKey()) && entry.getValue().isJsonArray())
+                {
+                    for (JsonElement element : entry.getValue().getAsJsonArray())
+                    {
+                        if (!element.isJsonPrimitive())
+                        {
+                            throw new IllegalArgumentException("protocolTypes must only contain strings");
+                        }
+                        protocolTypes.add(element.getAsString().trim());
+                    }
+                }
+                else if (entry.getValue().isJsonPrimitive())
+                {
+                    values.put(entry.getKey(), entry.getValue().getAsString());
+                }
+                else
+                {
+                    throw new IllegalArgumentException(entry.getKey() + " must be a string or number");
+                }
+            }
+
+            if (protocolTypes.isEmpty())
+            {
+                protocolTypes.addAll(splitProtocolTypes(values.get("protocolTypes")));
+            }
+
+            return new ProvisioningRequest(values, protocolTypes);
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw e;
+        }
+        catch (RuntimeException e)
+        {
+            throw new IllegalArgumentException("Not a valid JSON object: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Checks names, protocol types and sizes against the service limits
+     * @throws IllegalArgumentException listing every problem found
+     */
+    public void validate()
+    {
+        List<String> errors = new ArrayList<>();
+
+        for (String field : List.of("resourceGroup", "location", "account", "pool", "volume", "sizeGiB", "subnetId"))
+        {
+            if (get(field) == null)
+                errors.add(field + " is required");
+        }
+
+        if (getAccount() != null && !ACCOUNT_NAME.matcher(getAccount()).matches())
+            errors.add("account must be 1-128 letters, digits, '-' or '_' and start with a letter or digit");
+        if (getPool() != null && !POOL_OR_VOLUME_NAME.matcher(getPool()).matches())
+            errors.add("pool must be 1-64 letters, digits, '-' or '_' and start with a letter");
+        if (getVolume() != null && !POOL_OR_VOLUME_NAME.matcher(getVolume()).matches())
+            errors.add("volume must be 1-64 letters, digits, '-' or '_' and start with a letter");
+        if (getCreationToken() != null && !CREATION_TOKEN.matcher(getCreationToken()).matches())
+            errors.add("creationToken must be 1-80 letters, digits or '-' and start with a letter");
+
+        if (protocolTypes.isEmpty())
+            errors.add("protocolTypes is required");
+        for (String protocolType : protocolTypes)
+        {
+            if (!PROTOCOL_TYPES.contains(protocolType))
+                errors.add("protocol type " + protocolType + " is not one of " + PROTOCOL_TYPES);
+        }
+        if (protocolTypes.contains("NFSv3") && protocolTypes.contains("NFSv4.1"))
+            errors.add("NFSv3 and NFSv4.1 cannot be combined in the same volume");
+
+        if (isSmb())
+        {
+            String prefix = get("smbServerNamePrefix");
+            if (prefix == null)
+                errors.add("smbServerNamePrefix is required for CIFS volumes");
+            else if (prefix.length() > MAX_SMB_SERVER_NAME_PREFIX_LENGTH)
+                errors.add("smbServerNamePrefix must be at most " + MAX_SMB_SERVER_NAME_PREFIX_LENGTH + " characters");
+        }
+
+        if (!SERVICE_LEVELS.contains(getServiceLevel()))
+            errors.add("serviceLevel must be one of " + SERVICE_LEVELS);
+        if (!SECURITY_STYLES.contains(getSecurityStyle()))
+            errors.add("securityStyle must be one of " + SECURITY_STYLES);
+
+        Long sizeGiB = parseLong("sizeGiB", errors);
+        if (sizeGiB != null && (sizeGiB < MIN_VOLUME_SIZE_GIB || sizeGiB > MAX_VOLUME_SIZE_GIB))
+            errors.add("sizeGiB must be between " + MIN_VOLUME_SIZE_GIB + " and " + MAX_VOLUME_SIZE_GIB);
+        Long poolSizeTiB = parseLong("poolSizeTiB", errors);
+        if (poolSizeTiB != null && poolSizeTiB < MIN_POOL_SIZE_TIB)
+            errors.add("poolSizeTiB must be at least " + MIN_POOL_SIZE_TIB);
+
+        if (!errors.isEmpty())
+        {
+            throw new IllegalArgumentException(String.join("; ", errors));
+        }
+    }
+
+    public String getResourceGroup()
+    {
+        return get("resourceGroup");
+    }
+
+    public String getLocation()
+    {
+        return get("location");
+    }
+
+    public String getAccount()
+    {
+        return get("account");
+    }
+
+    public String getPool()
+    {
+        return get("pool");
+    }
+
+    public String getServiceLevel()
+    {
+        String serviceLevel = get("serviceLevel");
+        return serviceLevel == null ? "Standard" : serviceLevel;
+    }
+
+    public long getPoolSize()
+    {
+        String poolSizeTiB = get("poolSizeTiB");
+        return (poolSizeTiB == null ? MIN_POOL_SIZE_TIB : Long.parseLong(poolSizeTiB)) * TIB;
+    }
+
+    public String getVolume()
+    {
+        return get("volume");
+    }
+
+    public String getCreationToken()
+    {
+        String creationToken = get("creationToken");
+        return creationToken == null ? getVolume() : creationToken;
+    }
+
+    public long getVolumeSize()
+    {
+        return Long.parseLong(get("sizeGiB")) * GIB;
+    }
+
+    public List<String> getProtocolTypes()
+    {
+        return protocolTypes;
+    }
+
+    public String getSubnetId()
+    {
+        return get("subnetId");
+    }
+
+    public String getSmbServerNamePrefix()
+    {
+        return get("smbServerNamePrefix");
+    }
+
+    public String getSecurityStyle()
+    {
+        String securityStyle = get("securityStyle");
+        if (securityStyle == null)
+        {
+            return isSmb() ? "ntfs" : "unix";
+        }
+
+        return securityStyle.toLowerCase();
+    }
+
+    public boolean isSmb()
+    {
+        return protocolTypes.contains("CIFS");
+    }
+
+    private String get(String field)
+    {
+        String value = values.get(field);
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private Long parseLong(String field, List<String> errors)
+    {
+        String value = get(field);
+        if (value == null)
+        {
+            return null;
+        }
+
+        try
+        {
+            return Long.parseLong(value);
+        }
+        catch (NumberFormatException e)
+        {
+            errors.add(field + " must be a whole number");
+            return null;
+        }
+    }
+
+    private static List<String> splitProtocolTypes(String value)
+    {
+        List<String> protocolTypes = new ArrayList<>();
+        if (value != null)
+        {
+            for (String protocolType : value.split(";"))
+            {
+                if (!protocolType.isBlank())
+                    protocolTypes.add(protocolType.trim());
+            }
+        }
+
+        return protocolTypes;
+    }
+
+    /**
+     * Splits a CSV line on commas, honoring double quoted fields and doubled quotes inside them
+     */
+    static List<String> splitCsv(String line)
+    {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++)
+        {
+            char c = line.charAt(i);
+            if (quoted)
+            {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"')
+                {
+                    field.append('"');
+                    i++;
+                }
+                else if (c == '"')
+                {
+                    quoted = false;
+                }
+                else
+                {
+                    field.append(c);
+                }
+            }
+            else if (c == '"')
+            {
+                quoted = true;
+            }
+            else if (c == ',')
+            {
+                fields.add(field.toString());
+                field.setLength(0);
+            }
+            else
+            {
+                field.append(c);
+            }
+        }
+
+        if (quoted)
+        {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+
+        return fields;
+    }
+}
@@ -0,0 +1,207 @@
+// Copyright (c) Microsoft and contributors.  All rights reserved.
+//
+// This source code is licensed under the MIT license found in the
+// LICENSE file in the root directory of this source tree.
+
+package dualprotocol.sdk.sample;
+
+import com.azure.resourcemanager.netapp.fluent.NetAppManagementClient;
+import com.azure.resourcemanager.netapp.fluent.models.CapacityPoolInner;
+import com.azure.resourcemanager.netapp.fluent.models.ReplicationStatusInner;
+import com.azure.resourcemanager.netapp.fluent.models.VolumeInner;
+import com.azure.resourcemanager.netapp.models.AuthorizeRequest;
+import com.azure.resourcemanager.netapp.models.EndpointType;
+import com.azure.resourcemanager.netapp.models.MirrorState;
+import com.azure.resourcemanager.netapp.models.ReplicationObject;
+import com.azure.resourcemanager.netapp.models.ReplicationSchedule;
+import com.azure.resourcemanager.netapp.models.VolumePropertiesDataProtection;
+import dualprotocol.sdk.sample.common.CommonSdk;
+import dualprotocol.sdk.sample.common.ResourceUriUtils;
+import dualprotocol.sdk.sample.common.Utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class Replication
+{
+    /**
+     * Creates a data protection Volume in the destination Capacity Pool for each source Volume and authorizes the
+     * replication on the source. Pairs are set up concurrently and a failed pair does not stop the others.
+     * Destination Volumes that already replicate from their source are reused, and their replication is authorized only if
+     * it is not established yet, since an earlier run may have stopped before doing so. A pair fails if its destination name
+     * is taken by a Volume that does not replicate from the source
+     * @param anfClient Azure NetApp Files Management Client
+     * @param sourceVolumes Volumes to protect
+     * @param destinationPoolParams Contains resource group, Account name, and Pool name of the destination
+     * @param destinationSubnetId Delegated subnet in the destination region
+     * @param replicationSchedule Valid schedules are: _10minutely, hourly, daily
+     * @param concurrency Maximum number of pairs set up at once
+     * @param failures Receives the error message of each source Volume that could not be set up, for the caller to report
+     * @return Pairs that were set up successfully
+     */
+    public static List<ReplicationPair> setupReplication(NetAppManagementClient anfClient, List<VolumeInner> sourceVolumes,
+                                                         String[] destinationPoolParams, String destinationSubnetId,
+                                                         String replicationSchedule, int concurrency, Map<String, String> failures)
+    {
+        CapacityPoolInner destinationPool = (CapacityPoolInner) CommonSdk.getExistingResource(anfClient, destinationPoolParams, CapacityPoolInner.class);
+        if (destinationPool == null)
+        {
+            throw new IllegalArgumentException("Destination Capacity Pool not found: " + destinationPoolParams[2]);
+        }
+
+        List<ReplicationPair> pairs = Collections.synchronizedList(new ArrayList<>());
+        int total = sourceVolumes.size();
+        AtomicInteger completed = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(concurrency, total)));
+        try
+        {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (VolumeInner sourceVolume : sourceVolumes)
+            {
+                futures.add(CompletableFuture.runAsync(() -> {
+                    try
+                    {
+                        pairs.add(setupPair(anfClient, sourceVolume, destinationPool, destinationPoolParams,
+                                destinationSubnetId, replicationSchedule));
+                    }
+                    catch (Exception e)
+                    {
+                        failures.put(sourceVolume.id(), String.valueOf(e.getMessage()));
+                    }
+
+                    Utils.writeConsoleMessage("Set up " + completed.incrementAndGet() + "/" + total + " replication pairs");
+                }, executor));
+            }
+
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        return new ArrayList<>(pairs);
+    }
+
+    private static ReplicationPair setupPair(NetAppManagementClient anfClient, VolumeInner sourceVolume, CapacityPoolInner destinationPool,
+                                             String[] destinationPoolParams, String destinationSubnetId, String replicationSchedule)
+    {
+        String sourceVolumeName = ResourceUriUtils.getAnfVolume(sourceVolume.id());
+        String[] destinationVolumeParams = {destinationPoolParams[0], destinationPoolParams[1], destinationPoolParams[2], sourceVolumeName};
+
+        VolumeInner destinationVolume = (VolumeInner) CommonSdk.getExistingResource(anfClient, destinationVolumeParams, VolumeInner.class);
+        if (destinationVolume != null)
+        {
+            if (!replicatesFrom(destinationVolume, sourceVolume))
+            {
+                throw new IllegalStateException("Destination name is used by a Volume that is not a replica of "
+                        + sourceVolume.id() + ": " + destinationVolume.id());
+            }
+
+            Utils.writeConsoleMessage("Destination Volume already exists, resourceId: " + destinationVolume.id());
+            if (!isReplicationEstablished(anfClient, destinationVolume))
+            {
+                // An earlier run may have stopped between creating the destination and authorizing the replication
+                authorizeReplication(anfClient, sourceVolume, destinationVolume);
+            }
+            return new ReplicationPair(sourceVolume.id(), destinationVolume.id());
+        }
+
+        ReplicationObject replication = new ReplicationObject();
+        replication.withEndpointType(EndpointType.DST);
+        replication.withRemoteVolumeRegion(sourceVolume.location());
+        replication.withRemoteVolumeResourceId(sourceVolume.id());
+        replication.withReplicationSchedule(ReplicationSchedule.fromString(replicationSchedule));
+
+        VolumeInner newVolume = new VolumeInner();
+        newVolume.withLocation(destinationPool.location());
+        newVolume.withServiceLevel(destinationPool.serviceLevel());
+        newVolume.withCreationToken(sourceVolume.creationToken());
+        newVolume.withSubnetId(destinationSubnetId);
+        newVolume.withUsageThreshold(sourceVolume.usageThreshold());
+        newVolume.withProtocolTypes(sourceVolume.protocolTypes());
+        newVolume.withSecurityStyle(sourceVolume.securityStyle());
+        newVolume.withVolumeType("DataProtection");
+        newVolume.withDataProtection(new VolumePropertiesDataProtection().withReplication(replication));
+
+        destinationVolume = Creation.createVolume(anfClient, destinationVolumeParams, newVolume);
+        authorizeReplication(anfClient, sourceVolume, destinationVolume);
+
+        return new ReplicationPair(sourceVolume.id(), destinationVolume.id());
+    }
+
+    /**
+     * Checks the replication status of an existing destination Volume. The relationship is only considered missing when
+     * it is still uninitialized, or when its status cannot be read at all
+     */
+    private static boolean isReplicationEstablished(NetAppManagementClient anfClient, VolumeInner destinationVolume)
+    {
+        try
+        {
+            ReplicationStatusInner status = anfClient.getVolumes().replicationStatus(
+                    ResourceUriUtils.getResourceGroup(destinationVolume.id()),
+                    ResourceUriUtils.getAnfAccount(destinationVolume.id()),
+                    ResourceUriUtils.getAnfCapacityPool(destinationVolume.id()),
+                    ResourceUriUtils.getAnfVolume(destinationVolume.id()));
+            return !MirrorState.UNINITIALIZED.equals(status.mirrorState());
+        }
+        catch (Exception e)
+        {
+            Utils.writeWarningMessage("Could not read the replication status of " + destinationVolume.id() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Authorizes the replication on the source Volume
+     */
+    private static void authorizeReplication(NetAppManagementClient anfClient, VolumeInner sourceVolume, VolumeInner destinationVolume)
+    {
+        anfClient.getVolumes().beginAuthorizeReplication(
+                ResourceUriUtils.getResourceGroup(sourceVolume.id()),
+                ResourceUriUtils.getAnfAccount(sourceVolume.id()),
+                ResourceUriUtils.getAnfCapacityPool(sourceVolume.id()),
+                ResourceUriUtils.getAnfVolume(sourceVolume.id()),
+                new AuthorizeRequest().withRemoteVolumeResourceId(destinationVolume.id())).getFinalResult();
+        Utils.writeSuccessMessage("Replication successfully authorized, source: " + sourceVolume.id());
+    }
+
+    private static boolean replicatesFrom(VolumeInner destinationVolume, VolumeInner sourceVolume)
+    {
+        return destinationVolume.dataProtection() != null
+                && destinationVolume.dataProtection().replication() != null
+                && sourceVolume.id().equalsIgnoreCase(destinationVolume.dataProtection().replication().remoteVolumeResourceId());
+    }
+
+    /**
+     * Source and destination Volume ids of a replication relationship
+     */
+    public static class ReplicationPair
+    {
+        private final String sourceVolumeId;
+        private final String destinationVolumeId;
+
+        public ReplicationPair(String sourceVolumeId, String destinationVolumeId)
+        {
+            this.sourceVolumeId = sourceVolumeId;
+            this.destinationVolumeId = destinationVolumeId;
+        }
+
+        public String getSourceVolumeId()
+        {
+            return sourceVolumeId;
+        }
+
+        public String getDestinationVolumeId()
+        {
+            return destinationVolumeId;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+// Copyright (c) Microsoft and contributors.  All rights reserved.
+//
+// This source code is licensed under the MIT license found in the
+// LICENSE file in the root directory of this source tree.
+
+package dualprotocol.sdk.sample;
+
+import com.azure.resourcemanager.netapp.fluent.NetAppManagementClient;
+import com.azure.resourcemanager.netapp.fluent.models.ReplicationStatusInner;
+import com.azure.resourcemanager.netapp.fluent.models.VolumeInner;
+import com.azure.resourcemanager.netapp.models.MirrorState;
+import com.azure.resourcemanager.netapp.models.RelationshipStatus;
+import dualprotocol.sdk.sample.common.ResourceUriUtils;
+import dualprotocol.sdk.sample.common.Utils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Tracks mirror state and transfer progress of many replication pairs
+public class ReplicationTracker
+{
+    private static final String SUCCEEDED = "Succeeded";
+
+    private final Map<String, PairState> pairsByDestinationId = new LinkedHashMap<>();
+    private final int concurrency;
+    private final int settledCheckInterval;
+    private int round;
+
+    /**
+     * @param pairs Replication pairs to track
+     * @param concurrency Maximum number of replication status requests in flight
+     * @param settledCheckInterval Pairs that are mirrored and idle are only checked every this many rounds
+     */
+    public ReplicationTracker(List<Replication.ReplicationPair> pairs, int concurrency, int settledCheckInterval)
+    {
+        for (Replication.ReplicationPair pair : pairs)
+        {
+            pairsByDestinationId.put(pair.getDestinationVolumeId().toLowerCase(), new PairState(pair));
+        }
+        this.concurrency = concurrency;
+        this.settledCheckInterval = Math.max(1, settledCheckInterval);
+    }
+
+    /**
+     * Polls until every pair is mirrored and idle or the timeout expires, printing the state of all pairs after each round
+     * @param anfClient Azure NetApp Files Management Client
+     * @param intervalInSec Time in seconds between polling rounds
+     * @param timeoutInSec Maximum time in seconds to wait
+     * @return True if every pair is mirrored and idle
+     */
+    public boolean waitForMirrored(NetAppManagementClient anfClient, int intervalInSec, int timeoutInSec)
+    {
+        Instant deadline = Instant.now().plusSeconds(timeoutInSec);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, concurrency));
+        try
+        {
+            while (true)
+            {
+                poll(anfClient, executor);
+                printStatus();
+
+                if (allMirrored())
+                {
+                    return true;
+                }
+                if (Instant.now().plusSeconds(intervalInSec).isAfter(deadline))
+                {
+                    return false;
+                }
+
+                Utils.threadSleep(intervalInSec * 1000);
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Runs a single polling round. The destination Volumes are fetched with one list request per destination Capacity Pool,
+     * and the replication status is only requested for Volumes that finished provisioning. Pairs that are already mirrored
+     * and idle are checked less often
+     * @param anfClient Azure NetApp Files Management Client
+     * @param executor Runs the replication status requests
+     */
+    public void poll(NetAppManagementClient anfClient, ExecutorService executor)
+    {
+        round++;
+
+        Map<String, List<PairState>> pairsByPool = new HashMap<>();
+        for (PairState state : pairsByDestinationId.values())
+        {
+            String destinationId = state.pair.getDestinationVolumeId();
+            String poolKey = String.join("/", ResourceUriUtils.getResourceGroup(destinationId),
+                    ResourceUriUtils.getAnfAccount(destinationId),
+                    ResourceUriUtils.getAnfCapacityPool(destinationId));
+            pairsByPool.computeIfAbsent(poolKey, k -> new ArrayList<>()).add(state);
+        }
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (List<PairState> poolPairs : pairsByPool.values())
+        {
+            String destinationId = poolPairs.get(0).pair.getDestinationVolumeId();
+            try
+            {
+                for (VolumeInner volume : anfClient.getVolumes().list(ResourceUriUtils.getResourceGroup(destinationId),
+                        ResourceUriUtils.getAnfAccount(destinationId),
+                        ResourceUriUtils.getAnfCapacityPool(destinationId)))
+                {
+                    PairState state = pairsByDestinationId.get(volume.id().toLowerCase());
+                    if (state != null)
+                    {
+                        state.provisioningState = volume.provisioningState();
+                    }
+                }
+            }
+            catch (Exception e)
+            {
+                Utils.writeWarningMessage("Error listing destination Volumes - " + e.getMessage());
+                continue;
+            }
+
+            for (PairState state : poolPairs)
+            {
+                if (!SUCCEEDED.equalsIgnoreCase(state.provisioningState))
+                {
+                    continue;
+                }
+                if (state.isMirrored() && round % settledCheckInterval != 0)
+                {
+                    continue;
+                }
+
+                futures.add(CompletableFuture.runAsync(() -> refreshReplicationStatus(anfClient, state), executor));
+            }
+        }
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+    }
+
+    /**
+     * @return True if every pair is mirrored and idle
+     */
+    public boolean allMirrored()
+    {
+        return pairsByDestinationId.values().stream().allMatch(PairState::isMirrored);
+    }
+
+    /**
+     * Prints one line per pair with its mirror state, relationship status, transferred bytes and the time since a
+     * transfer was last seen finishing
+     */
+    public void printStatus()
+    {
+        int mirrored = 0;
+        for (PairState state : pairsByDestinationId.values())
+        {
+            if (state.isMirrored())
+                mirrored++;
+
+            String message = ResourceUriUtils.getAnfVolume(state.pair.getSourceVolumeId())
+                    + " -> " + state.pair.getDestinationVolumeId()
+                    + " | provisioning: " + state.provisioningState
+                    + " | mirror: " + state.mirrorState
+                    + " | relationship: " + state.relationshipStatus
+                    + " | transferred: " + (state.totalProgress == null ? "-" : state.totalProgress)
+                    + " | since last observed transfer: " + state.sinceLastObservedTransfer();
+
+            if (state.errorMessage != null && !state.errorMessage.isBlank())
+                Utils.writeWarningMessage(message + " | error: " + state.errorMessage);
+            else
+                Utils.writeConsoleMessage(message);
+        }
+
+        Utils.writeConsoleMessage(mirrored + "/" + pairsByDestinationId.size() + " pairs mirrored and idle");
+    }
+
+    private static void refreshReplicationStatus(NetAppManagementClient anfClient, PairState state)
+    {
+        String destinationId = state.pair.getDestinationVolumeId();
+        try
+        {
+            ReplicationStatusInner status = anfClient.getVolumes().replicationStatus(
+                    ResourceUriUtils.getResourceGroup(destinationId),
+                    ResourceUriUtils.getAnfAccount(destinationId),
+                    ResourceUriUtils.getAnfCapacityPool(destinationId),
+                    ResourceUriUtils.getAnfVolume(destinationId));
+            state.update(status);
+        }
+        catch (Exception e)
+        {
+            state.errorMessage = e.getMessage();
+        }
+    }
+
+    private static class PairState
+    {
+        private final Replication.ReplicationPair pair;
+        private volatile String provisioningState;
+        private volatile MirrorState mirrorState;
+        private volatile RelationshipStatus relationshipStatus;
+        private volatile String totalProgress;
+        private volatile String errorMessage;
+        private volatile Instant lastTransferCompleted;
+
+        PairState(Replication.ReplicationPair pair)
+        {
+            this.pair = pair;
+        }
+
+        void update(ReplicationStatusInner status)
+        {
+            // A transfer that was seen running and is now idle marks the point the destination caught up
+            if (RelationshipStatus.TRANSFERRING.equals(relationshipStatus) && RelationshipStatus.IDLE.equals(status.relationshipStatus()))
+            {
+                lastTransferCompleted = Instant.now();
+            }
+
+            mirrorState = status.mirrorState();
+            relationshipStatus = status.relationshipStatus();
+            totalProgress = status.totalProgress();
+            errorMessage = status.errorMessage();
+        }
+
+        boolean isMirrored()
+        {
+            return MirrorState.MIRRORED.equals(mirrorState) && RelationshipStatus.IDLE.equals(relationshipStatus);
+        }
+
+        /**
+         * Time since this tracker saw a transfer go from transferring to idle. The replication status has no timestamps, so
+         * this is not the replication lag: it stays "-" until a transfer is observed and ignores transfers between polls
+         */
+        String sinceLastObservedTransfer()
+        {
+            Instant completed = lastTransferCompleted;
+            if (completed == null)
+            {
+                return "-";
+            }
+
+            return Duration.between(completed, Instant.now()).getSeconds() + "s";
+        }
+    }
+}
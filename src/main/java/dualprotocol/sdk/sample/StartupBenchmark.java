@@ -0,0 +1,157 @@
+// Copyright (c) Microsoft and contributors.  All rights reserved.
+//
+// This source code is licensed under the MIT license found in the
+// LICENSE file in the root directory of this source tree.
+
+package dualprotocol.sdk.sample;
+
+import dualprotocol.sdk.sample.common.StartupTimer;
+import dualprotocol.sdk.sample.common.Utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// Measures time-to-first-request of console commands in fresh JVMs, with and without an AppCDS archive
+public class StartupBenchmark
+{
+    private final String classpath;
+    private final Path archive;
+
+    /**
+     * @param classpath Class path of the child JVMs. AppCDS only archives classes loaded from jar files
+     * @param archive AppCDS archive file to build and use, or null to benchmark without class data sharing
+     */
+    public StartupBenchmark(String classpath, Path archive)
+    {
+        this.classpath = classpath;
+        this.archive = archive;
+    }
+
+    /**
+     * Builds the AppCDS archive from a training run of a command. Java 13 and newer dump the classes loaded by the
+     * training run directly; Java 11 and 12 record the class list first and dump the archive in a second step
+     * @param command Command and arguments to train with
+     */
+    public void train(List<String> command) throws IOException, InterruptedException
+    {
+        if (Runtime.version().feature() >= 13)
+        {
+            runJvm(List.of("-XX:ArchiveClassesAtExit=" + archive), command);
+        }
+        else
+        {
+            Path classList = Path.of(archive + ".classlist");
+            runJvm(List.of("-XX:DumpLoadedClassList=" + classList), command);
+            runJvm(List.of("-Xshare:dump", "-XX:SharedClassListFile=" + classList, "-XX:SharedArchiveFile=" + archive), null);
+        }
+
+        if (!Files.exists(archive))
+        {
+            throw new IllegalStateException("Training run did not produce the AppCDS archive " + archive);
+        }
+        Utils.writeSuccessMessage("AppCDS archive created: " + archive);
+    }
+
+    /**
+     * Runs each command the given number of times, in a fresh JVM every time, and prints the median time from JVM start
+     * to the first request being sent and answered, and to process exit. When an archive is configured every command
+     * is measured without and with it
+     * @param commands Commands and their arguments
+     * @param iterations Number of runs per command and mode
+     */
+    public void run(List<List<String>> commands, int iterations) throws IOException, InterruptedException
+    {
+        for (List<String> command : commands)
+        {
+            report(command, "default", measure(Collections.emptyList(), command, iterations));
+            if (archive != null)
+            {
+                report(command, "appcds", measure(List.of("-XX:SharedArchiveFile=" + archive), command, iterations));
+            }
+        }
+    }
+
+    private long[][] measure(List<String> jvmOptions, List<String> command, int iterations) throws IOException, InterruptedException
+    {
+        long[][] samples = new long[3][iterations];
+        for (int i = 0; i < iterations; i++)
+        {
+            Timing timing = runJvm(jvmOptions, command);
+            samples[0][i] = timing.firstRequest;
+            samples[1][i] = timing.firstResponse;
+            samples[2][i] = timing.total;
+        }
+
+        return samples;
+    }
+
+    private void report(List<String> command, String mode, long[][] samples)
+    {
+        Utils.writeConsoleMessage(String.join(" ", command) + " [" + mode + "]"
+                + " first request: " + format(median(samples[0]))
+                + ", first response: " + format(median(samples[1]))
+                + ", exit: " + format(median(samples[2])));
+    }
+
+    private Timing runJvm(List<String> jvmOptions, List<String> command) throws IOException, InterruptedException
+    {
+        List<String> processCommand = new ArrayList<>();
+        processCommand.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        processCommand.addAll(jvmOptions);
+        processCommand.add("-D" + StartupTimer.TIMING_PROPERTY + "=true");
+        processCommand.add("-cp");
+        processCommand.add(classpath);
+        if (command != null)
+        {
+            processCommand.add(main.class.getName());
+            processCommand.addAll(command);
+        }
+
+        Timing timing = new Timing();
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(processCommand)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8)))
+        {
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                if (line.startsWith(StartupTimer.FIRST_REQUEST_MARKER))
+                    timing.firstRequest = Long.parseLong(line.substring(StartupTimer.FIRST_REQUEST_MARKER.length()).trim());
+                else if (line.startsWith(StartupTimer.FIRST_RESPONSE_MARKER))
+                    timing.firstResponse = Long.parseLong(line.substring(StartupTimer.FIRST_RESPONSE_MARKER.length()).trim());
+            }
+        }
+        process.waitFor();
+        timing.total = (System.nanoTime() - start) / 1_000_000;
+
+        return timing;
+    }
+
+    private static long median(long[] values)
+    {
+        long[] sorted = Arrays.stream(values).filter(v -> v >= 0).sorted().toArray();
+        return sorted.length == 0 ? -1 : sorted[sorted.length / 2];
+    }
+
+    private static String format(long millis)
+    {
+        return millis < 0 ? "n/a" : millis + " ms";
+    }
+
+    private static class Timing
+    {
+        private long firstRequest = -1;
+        private long firstResponse = -1;
+        private long total;
+    }
+}
@@ -0,0 +1,140 @@
+// Copyright (c) Microsoft and contributors.  All rights reserved.
+//
+// This source code is licensed under the MIT license found in the
+// LICENSE file in the root directory of this source tree.
+
+package dualprotocol.sdk.sample.common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Contains public methods to read positional arguments and --name value options of a console command
+public class CommandArgs
+{
+    private final String usage;
+    private final List<String> positionals = new ArrayList<>();
+    private final Map<String, List<String>> options = new LinkedHashMap<>();
+
+    /**
+     * Splits the command line into positional arguments and options. Every option takes exactly one value
+     * and may be repeated
+     * @param args Command name followed by its arguments
+     * @param usage Usage text reported when a required argument is missing or malformed
+     */
+    public CommandArgs(String[] args, String usage)
+    {
+        this.usage = usage;
+
+        for (int i = 1; i < args.length; i++)
+        {
+            if (args[i].startsWith("--"))
+            {
+                if (i + 1 >= args.length)
+                {
+                    throw new IllegalArgumentException("Missing value for option " + args[i] + ". Usage: " + usage);
+                }
+                options.computeIfAbsent(args[i].substring(2), k -> new ArrayList<>()).add(args[++i]);
+            }
+            else
+            {
+                positionals.add(args[i]);
+            }
+        }
+    }
+
+    /**
+     * Returns a required positional argument
+     * @param index Zero based position, not counting the command name
+     * @return Value of the argument
+     */
+    public String positional(int index)
+    {
+        if (index >= positionals.size())
+        {
+            throw new IllegalArgumentException("Missing argument. Usage: " + usage);
+        }
+
+        return positionals.get(index);
+    }
+
+    /**
+     * Returns an optional positional argument
+     * @param index Zero based position, not counting the command name
+     * @param defaultValue Value returned when the argument was not given
+     * @return Value of the argument
+     */
+    public String positional(int index, String defaultValue)
+    {
+        return index < positionals.size() ? positionals.get(index) : defaultValue;
+    }
+
+    /**
+     * Returns the last value given for an option
+     * @param name Option name without the leading dashes
+     * @param defaultValue Value returned when the option was not given
+     * @return Value of the option
+     */
+    public String option(String name, String defaultValue)
+    {
+        List<String> values = options.get(name);
+        return values == null ? defaultValue : values.get(values.size() - 1);
+    }
+
+    /**
+     * Returns the last value given for a numeric option
+     * @param name Option name without the leading dashes
+     * @param defaultValue Value returned when the option was not given
+     * @return Value of the option
+     */
+    public int intOption(String name, int defaultValue)
+    {
+        String value = option(name, null);
+        if (value == null)
+        {
+            return defaultValue;
+        }
+
+        try
+        {
+            return Integer.parseInt(value);
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IllegalArgumentException("Option --" + name + " must be a number. Usage: " + usage);
+        }
+    }
+
+    /**
+     * Returns all values given for a repeatable option
+     * @param name Option name without the leading dashes
+     * @return Values in the order given, empty if the option was not given
+     */
+    public List<String> options(String name)
+    {
+        return options.getOrDefault(name, Collections.emptyList());
+    }
+
+    /**
+     * Returns all key=value pairs given for a repeatable option
+     * @param name Option name without the leading dashes
+     * @return Pairs in the order given, empty if the option was not given
+     */
+    public Map<String, String> keyValueOptions(String name)
+    {
+        Map<String, String> pairs = new LinkedHashMap<>();
+        for (String value : options(name))
+        {
+            int separator = value.indexOf('=');
+            if (separator <= 0)
+            {
+                throw new IllegalArgumentException("Option --" + name + " must be in key=value format. Usage: " + usage);
+            }
+            pairs.put(value.substring(0, separator), value.substring(separator + 1));
+        }
+
+        return pairs;
+    }
+}
@@ -27,44 +27,11 @@ public class CommonSdk
     {
         try
         {
-            switch (clazz.getSimpleName())
-            {
-                case "NetAppAccountInner":
-                    return anfClient.getAccounts().getByResourceGroup(
-                            parameters[0],
-                            parameters[1]);
-
-                case "SnapshotPolicyInner":
-                    return anfClient.getSnapshotPolicies().get(
-                            parameters[0],
-                            parameters[1],
-                            parameters[2]);
-
-                case "CapacityPoolInner":
-                    return anfClient.getPools().get(
-                            parameters[0],
-                            parameters[1],
-                            parameters[2]);
-
-                case "VolumeInner":
-                    return anfClient.getVolumes().get(
-                            parameters[0],
-                            parameters[1],
-                            parameters[2],
-                            parameters[3]);
-
-                case "SnapshotInner":
-                    return anfClient.getSnapshots().get(
-                            parameters[0],
-                            parameters[1],
-                            parameters[2],
-                            parameters[3],
-                            parameters[4]);
-            }
+            return fetchResource(anfClient, parameters, clazz);
         }
         catch (Exception e)
         {
-            if (e.getMessage().contains("Status code 404"))
+            if (isNotFound(e))
                 return null;
             Utils.writeWarningMessage("Error finding resource - " + e.getMessage());
         }
@@ -72,6 +39,106 @@ public class CommonSdk
         return null;
     }
 
+    /**
+     * Returns an ANF resource or null if it does not exist, working out the resource type from its resource id.
+     * Errors other than not found are thrown
+     * @param anfClient Azure NetApp Files Management Client
+     * @param resourceId Resource id of an Account, Snapshot Policy, Capacity Pool, Volume or Snapshot
+     * @return Valid resource, or null if it does not exist
+     */
+    public static Object getResourceById(NetAppManagementClient anfClient, String resourceId)
+    {
+        String resourceGroup = ResourceUriUtils.getResourceGroup(resourceId);
+        String account = ResourceUriUtils.getAnfAccount(resourceId);
+
+        if (ResourceUriUtils.getAnfSnapshot(resourceId) != null)
+            return getExistingResource(anfClient, new String[]{resourceGroup, account, ResourceUriUtils.getAnfCapacityPool(resourceId),
+                    ResourceUriUtils.getAnfVolume(resourceId), ResourceUriUtils.getAnfSnapshot(resourceId)}, SnapshotInner.class);
+
+        if (ResourceUriUtils.getAnfVolume(resourceId) != null)
+            return getExistingResource(anfClient, new String[]{resourceGroup, account, ResourceUriUtils.getAnfCapacityPool(resourceId),
+                    ResourceUriUtils.getAnfVolume(resourceId)}, VolumeInner.class);
+
+        if (ResourceUriUtils.getAnfCapacityPool(resourceId) != null)
+            return getExistingResource(anfClient, new String[]{resourceGroup, account, ResourceUriUtils.getAnfCapacityPool(resourceId)},
+                    CapacityPoolInner.class);
+
+        if (ResourceUriUtils.getAnfSnapshotPolicy(resourceId) != null)
+            return getExistingResource(anfClient, new String[]{resourceGroup, account, ResourceUriUtils.getAnfSnapshotPolicy(resourceId)},
+                    SnapshotPolicyInner.class);
+
+        if (account != null)
+            return getExistingResource(anfClient, new String[]{resourceGroup, account}, NetAppAccountInner.class);
+
+        throw new IllegalArgumentException("Not an Azure NetApp Files resource id: " + resourceId);
+    }
+
+    /**
+     * Returns an ANF resource or null if it does not exist. Unlike getResource, errors other than not found are thrown
+     * @param anfClient Azure NetApp Files Management Client
+     * @param parameters List of parameters required depending on the resource type, see getResource
+     * @param clazz Valid class types: NetAppAccountInner, CapacityPoolInner, VolumeInner, SnapshotInner, SnapshotPolicyInner
+     * @return Valid resource T, or null if it does not exist
+     */
+    public static <T> Object getExistingResource(NetAppManagementClient anfClient, String[] parameters, Class<T> clazz)
+    {
+        try
+        {
+            return fetchResource(anfClient, parameters, clazz);
+        }
+        catch (RuntimeException e)
+        {
+            if (isNotFound(e))
+                return null;
+            throw e;
+        }
+    }
+
+    private static <T> Object fetchResource(NetAppManagementClient anfClient, String[] parameters, Class<T> clazz)
+    {
+        switch (clazz.getSimpleName())
+        {
+            case "NetAppAccountInner":
+                return anfClient.getAccounts().getByResourceGroup(
+                        parameters[0],
+                        parameters[1]);
+
+            case "SnapshotPolicyInner":
+                return anfClient.getSnapshotPolicies().get(
+                        parameters[0],
+                        parameters[1],
+                        parameters[2]);
+
+            case "CapacityPoolInner":
+                return anfClient.getPools().get(
+                        parameters[0],
+                        parameters[1],
+                        parameters[2]);
+
+            case "VolumeInner":
+                return anfClient.getVolumes().get(
+                        parameters[0],
+                        parameters[1],
+                        parameters[2],
+                        parameters[3]);
+
+            case "SnapshotInner":
+                return anfClient.getSnapshots().get(
+                        parameters[0],
+                        parameters[1],
+                        parameters[2],
+                        parameters[3],
+                        parameters[4]);
+        }
+
+        return null;
+    }
+
+    private static boolean isNotFound(Exception e)
+    {
+        return e.getMessage() != null && e.getMessage().contains("Status code 404");
+    }
+
     /**
      * Method to overload function waitForNoANFResource(client, string, int, int, clazz) with default values
      * @param anfClient Azure NetApp Files Management Client
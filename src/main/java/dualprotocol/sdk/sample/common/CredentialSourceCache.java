@@ -0,0 +1,210 @@
+// Copyright (c) Microsoft and contributors.  All rights reserved.
+//
+// This source code is licensed under the MIT license found in the
+// LICENSE file in the root directory of this source tree.
+
+package dualprotocol.sdk.sample.common;
+
+import com.azure.core.credential.AccessToken;
+import com.azure.core.credential.TokenCredential;
+import com.azure.core.credential.TokenRequestContext;
+import com.azure.core.exception.ClientAuthenticationException;
+import com.azure.core.management.profile.AzureProfile;
+import com.azure.identity.AzureCliCredentialBuilder;
+import com.azure.identity.CredentialUnavailableException;
+import com.azure.identity.DefaultAzureCredentialBuilder;
+import com.azure.identity.EnvironmentCredentialBuilder;
+import com.azure.identity.ManagedIdentityCredentialBuilder;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+// Remembers which credential source worked last time so later runs skip probing the whole default credential chain
+public class CredentialSourceCache
+{
+    private static final String ENVIRONMENT = "environment";
+    private static final String MANAGED_IDENTITY = "managed-identity";
+    private static final String AZURE_CLI = "azure-cli";
+
+    // Same order as the default credential chain
+    private static final List<String> SOURCES = List.of(ENVIRONMENT, MANAGED_IDENTITY, AZURE_CLI);
+
+    private static final Path CACHE_FILE = Path.of(System.getProperty("user.home"), ".anf-sample", "credential-source");
+
+    /**
+     * Returns a credential for the source saved by a previous run. If nothing was saved, the sources of the default
+     * credential chain are tried in order and the first one that returns a token is saved. If the saved source is
+     * rejected or no longer available, it is forgotten and the chain is probed again, once per run
+     * @param profile Azure profile with the environment to authenticate against
+     * @return Credential to authenticate the management client with
+     */
+    public static TokenCredential getCredential(AzureProfile profile)
+    {
+        String authorityHost = profile.getEnvironment().getActiveDirectoryEndpoint();
+
+        String cachedSource = readCachedSource();
+        if (cachedSource != null)
+        {
+            TokenCredential credential = buildCredential(cachedSource, authorityHost);
+            if (credential != null)
+            {
+                return new CachedSourceCredential(credential, profile);
+            }
+        }
+
+        return probeSources(profile);
+    }
+
+    private static TokenCredential probeSources(AzureProfile profile)
+    {
+        String authorityHost = profile.getEnvironment().getActiveDirectoryEndpoint();
+        TokenRequestContext probeRequest = new TokenRequestContext()
+                .addScopes(trimTrailingSlash(profile.getEnvironment().getResourceManagerEndpoint()) + "/.default");
+        for (String source : SOURCES)
+        {
+            if (ENVIRONMENT.equals(source) && System.getenv("AZURE_CLIENT_ID") == null)
+            {
+                continue;
+            }
+
+            TokenCredential credential = buildCredential(source, authorityHost);
+            try
+            {
+                credential.getToken(probeRequest).block(Duration.ofSeconds(30));
+            }
+            catch (Exception e)
+            {
+                continue;
+            }
+
+            writeCachedSource(source);
+            return credential;
+        }
+
+        Utils.writeWarningMessage("Could not detect a credential source, using the default credential chain");
+        return new DefaultAzureCredentialBuilder()
+                .authorityHost(authorityHost)
+                .build();
+    }
+
+    /**
+     * Forgets the saved credential source so the next run probes the credential chain again
+     */
+    public static void clear()
+    {
+        try
+        {
+            Files.deleteIfExists(CACHE_FILE);
+        }
+        catch (IOException e)
+        {
+            Utils.writeWarningMessage("Could not delete credential source cache - " + e.getMessage());
+        }
+    }
+
+    private static TokenCredential buildCredential(String source, String authorityHost)
+    {
+        switch (source)
+        {
+            case ENVIRONMENT:
+                return new EnvironmentCredentialBuilder()
+                        .authorityHost(authorityHost)
+                        .build();
+
+            case MANAGED_IDENTITY:
+                return new ManagedIdentityCredentialBuilder()
+                        .build();
+
+            case AZURE_CLI:
+                return new AzureCliCredentialBuilder()
+                        .build();
+        }
+
+        return null;
+    }
+
+    private static String readCachedSource()
+    {
+        try
+        {
+            return Files.exists(CACHE_FILE) ? Files.readString(CACHE_FILE).trim() : null;
+        }
+        catch (IOException e)
+        {
+            return null;
+        }
+    }
+
+    private static void writeCachedSource(String source)
+    {
+        try
+        {
+            Files.createDirectories(CACHE_FILE.getParent());
+            Files.writeString(CACHE_FILE, source);
+        }
+        catch (IOException e)
+        {
+            Utils.writeWarningMessage("Could not save credential source cache - " + e.getMessage());
+        }
+    }
+
+    private static String trimTrailingSlash(String value)
+    {
+        return value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+    }
+
+    // Only errors that say the source itself is unusable invalidate it, not throttling or network failures
+    private static boolean isAuthenticationFailure(Throwable e)
+    {
+        return e instanceof CredentialUnavailableException || e instanceof ClientAuthenticationException;
+    }
+
+    /**
+     * Uses the saved source until it fails to authenticate, then switches to a freshly probed source for the rest of the run
+     */
+    private static class CachedSourceCredential implements TokenCredential
+    {
+        private final TokenCredential cachedCredential;
+        private final AzureProfile profile;
+        private volatile TokenCredential probedCredential;
+
+        CachedSourceCredential(TokenCredential cachedCredential, AzureProfile profile)
+        {
+            this.cachedCredential = cachedCredential;
+            this.profile = profile;
+        }
+
+        @Override
+        public Mono<AccessToken> getToken(TokenRequestContext request)
+        {
+            TokenCredential credential = probedCredential;
+            if (credential != null)
+            {
+                return credential.getToken(request);
+            }
+
+            // Probing blocks on each source, so it must not run on the HTTP client's event loop
+            return cachedCredential.getToken(request)
+                    .onErrorResume(CredentialSourceCache::isAuthenticationFailure, e -> Mono.fromCallable(this::reprobe)
+                            .subscribeOn(Schedulers.boundedElastic())
+                            .flatMap(probed -> probed.getToken(request)));
+        }
+
+        private synchronized TokenCredential reprobe()
+        {
+            if (probedCredential == null)
+            {
+                Utils.writeWarningMessage("Saved credential source failed to authenticate, probing the credential chain again");
+                clear();
+                probedCredential = probeSources(profile);
+            }
+
+            return probedCredential;
+        }
+    }
+}
@@ -0,0 +1,415 @@
+// Copyright (c) Microsoft and contributors.  All rights reserved.
+//
+// This source code is licensed under the MIT license found in the
+// LICENSE file in the root directory of this source tree.
+
+package dualprotocol.sdk.sample.common;
+
+import com.azure.resourcemanager.netapp.fluent.NetAppManagementClient;
+import com.azure.resourcemanager.netapp.fluent.models.CapacityPoolInner;
+import com.azure.resourcemanager.netapp.fluent.models.NetAppAccountInner;
+import com.azure.resourcemanager.netapp.fluent.models.VolumeInner;
+import com.azure.resourcemanager.netapp.models.MountTargetProperties;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+// In-memory index of Volumes keyed by mount target IP address, SMB server FQDN, creation token and subnet id
+public class MountTargetIndex
+{
+    private final Map<String, IndexedVolume> volumesById = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> idsByIpAddress = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> idsBySmbServerFqdn = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> idsByCreationToken = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> idsBySubnetId = new ConcurrentHashMap<>();
+
+    /**
+     * Lists all Volumes in the subscription, or in a single resource group, and brings the index up to date with them.
+     * Unchanged Volumes are left untouched and Volumes that no longer exist within the scope are dropped
+     * @param anfClient Azure NetApp Files Management Client
+     * @param resourceGroupName Resource group to refresh, or null to refresh the whole subscription
+     * @return Number of Volumes that were added, changed or removed
+     */
+    public int refresh(NetAppManagementClient anfClient, String resourceGroupName)
+    {
+        Iterable<NetAppAccountInner> accounts = resourceGroupName == null
+                ? anfClient.getAccounts().list()
+                : anfClient.getAccounts().list(resourceGroupName);
+
+        Set<String> seenIds = new HashSet<>();
+        int changes = 0;
+        for (NetAppAccountInner account : accounts)
+        {
+            String accountResourceGroup = ResourceUriUtils.getResourceGroup(account.id());
+            for (CapacityPoolInner pool : anfClient.getPools().list(accountResourceGroup, account.name()))
+            {
+                changes += refreshVolumes(anfClient, accountResourceGroup, account.name(),
+                        ResourceUriUtils.getAnfCapacityPool(pool.id()), seenIds);
+            }
+        }
+
+        changes += removeStale(seenIds, volume -> resourceGroupName == null
+                || resourceGroupName.equalsIgnoreCase(volume.getResourceGroup()));
+
+        return changes;
+    }
+
+    /**
+     * Lists the Volumes of a single Capacity Pool and brings the index up to date with them
+     * @param anfClient Azure NetApp Files Management Client
+     * @param poolParams Contains resource group, Account name, and Pool name to refresh
+     * @return Number of Volumes that were added, changed or removed
+     */
+    public int refreshPool(NetAppManagementClient anfClient, String[] poolParams)
+    {
+        Set<String> seenIds = new HashSet<>();
+        int changes = refreshVolumes(anfClient, poolParams[0], poolParams[1], poolParams[2], seenIds);
+
+        changes += removeStale(seenIds, volume -> poolParams[0].equalsIgnoreCase(volume.getResourceGroup())
+                && poolParams[1].equalsIgnoreCase(volume.getAccount())
+                && poolParams[2].equalsIgnoreCase(volume.getPool()));
+
+        return changes;
+    }
+
+    /**
+     * Adds a Volume to the index or replaces its previous entry
+     * @param volume Volume as returned by the service
+     * @return True if the index changed
+     */
+    public synchronized boolean update(VolumeInner volume)
+    {
+        IndexedVolume entry = IndexedVolume.from(volume);
+        IndexedVolume previous = volumesById.get(entry.getKey());
+        if (entry.equals(previous))
+        {
+            return false;
+        }
+
+        if (previous != null)
+        {
+            unindex(previous);
+        }
+        volumesById.put(entry.getKey(), entry);
+        addKey(idsByCreationToken, entry.getCreationToken(), entry.getKey());
+        addKey(idsBySubnetId, entry.getSubnetId(), entry.getKey());
+        for (String ipAddress : entry.getIpAddresses())
+        {
+            addKey(idsByIpAddress, ipAddress, entry.getKey());
+        }
+        for (String smbServerFqdn : entry.getSmbServerFqdns())
+        {
+            addKey(idsBySmbServerFqdn, smbServerFqdn, entry.getKey());
+        }
+
+        return true;
+    }
+
+    /**
+     * Removes a Volume from the index
+     * @param volumeId Resource id of the Volume
+     * @return True if the Volume was indexed
+     */
+    public synchronized boolean remove(String volumeId)
+    {
+        IndexedVolume previous = volumesById.get(normalize(volumeId));
+        if (previous == null)
+        {
+            return false;
+        }
+
+        unindex(previous);
+        return true;
+    }
+
+    /**
+     * Finds the Volumes exposing a mount target with the given IP address
+     * @param ipAddress NFS mount target IP address
+     * @return Matching Volumes, empty if none
+     */
+    public List<IndexedVolume> findByIpAddress(String ipAddress)
+    {
+        return resolve(idsByIpAddress, ipAddress);
+    }
+
+    /**
+     * Finds the Volumes exposing a mount target with the given SMB server FQDN
+     * @param smbServerFqdn SMB server FQDN, case insensitive
+     * @return Matching Volumes, empty if none
+     */
+    public List<IndexedVolume> findBySmbServerFqdn(String smbServerFqdn)
+    {
+        return resolve(idsBySmbServerFqdn, smbServerFqdn);
+    }
+
+    /**
+     * Finds the Volumes using the given creation token (file path)
+     * @param creationToken Creation token, case insensitive
+     * @return Matching Volumes, empty if none
+     */
+    public List<IndexedVolume> findByCreationToken(String creationToken)
+    {
+        return resolve(idsByCreationToken, creationToken);
+    }
+
+    /**
+     * Finds the Volumes delegated to the given subnet
+     * @param subnetId Full resource id of the subnet, case insensitive
+     * @return Matching Volumes, empty if none
+     */
+    public List<IndexedVolume> findBySubnetId(String subnetId)
+    {
+        return resolve(idsBySubnetId, subnetId);
+    }
+
+    /**
+     * Finds Volumes by any indexed value, trying IP address, SMB server FQDN, subnet id and creation token in that order
+     * @param value IP address, FQDN, subnet id or creation token
+     * @return Matching Volumes, empty if none
+     */
+    public List<IndexedVolume> find(String value)
+    {
+        List<IndexedVolume> result = findByIpAddress(value);
+        if (result.isEmpty())
+            result = findBySmbServerFqdn(value);
+        if (result.isEmpty())
+            result = findBySubnetId(value);
+        if (result.isEmpty())
+            result = findByCreationToken(value);
+
+        return result;
+    }
+
+    /**
+     * @return Number of indexed Volumes
+     */
+    public int size()
+    {
+        return volumesById.size();
+    }
+
+    private int refreshVolumes(NetAppManagementClient anfClient, String resourceGroupName, String accountName, String poolName, Set<String> seenIds)
+    {
+        int changes = 0;
+        for (VolumeInner volume : anfClient.getVolumes().list(resourceGroupName, accountName, poolName))
+        {
+            seenIds.add(normalize(volume.id()));
+            if (update(volume))
+            {
+                changes++;
+            }
+        }
+
+        return changes;
+    }
+
+    private synchronized int removeStale(Set<String> seenIds, Predicate<IndexedVolume> scope)
+    {
+        List<IndexedVolume> stale = new ArrayList<>();
+        for (IndexedVolume volume : volumesById.values())
+        {
+            if (scope.test(volume) && !seenIds.contains(volume.getKey()))
+            {
+                stale.add(volume);
+            }
+        }
+
+        stale.forEach(this::unindex);
+        return stale.size();
+    }
+
+    private void unindex(IndexedVolume volume)
+    {
+        volumesById.remove(volume.getKey());
+        removeKey(idsByCreationToken, volume.getCreationToken(), volume.getKey());
+        removeKey(idsBySubnetId, volume.getSubnetId(), volume.getKey());
+        for (String ipAddress : volume.getIpAddresses())
+        {
+            removeKey(idsByIpAddress, ipAddress, volume.getKey());
+        }
+        for (String smbServerFqdn : volume.getSmbServerFqdns())
+        {
+            removeKey(idsBySmbServerFqdn, smbServerFqdn, volume.getKey());
+        }
+    }
+
+    private List<IndexedVolume> resolve(Map<String, Set<String>> map, String value)
+    {
+        if (value == null || value.isBlank())
+        {
+            return Collections.emptyList();
+        }
+
+        Set<String> ids = map.get(normalize(value));
+        if (ids == null)
+        {
+            return Collections.emptyList();
+        }
+
+        List<IndexedVolume> result = new ArrayList<>(ids.size());
+        for (String id : ids)
+        {
+            IndexedVolume volume = volumesById.get(id);
+            if (volume != null)
+            {
+                result.add(volume);
+            }
+        }
+
+        return result;
+    }
+
+    private static void addKey(Map<String, Set<String>> map, String value, String id)
+    {
+        if (value != null)
+        {
+            map.computeIfAbsent(value, k -> ConcurrentHashMap.newKeySet(1)).add(id);
+        }
+    }
+
+    private static void removeKey(Map<String, Set<String>> map, String value, String id)
+    {
+        if (value != null)
+        {
+            map.computeIfPresent(value, (k, ids) -> ids.remove(id) && ids.isEmpty() ? null : ids);
+        }
+    }
+
+    // Resource ids, FQDNs and creation tokens are case insensitive, so all keys are stored in lower case
+    private static String normalize(String value)
+    {
+        return value == null || value.isBlank() ? null : value.trim().toLowerCase();
+    }
+
+    /**
+     * Compact, immutable view of the Volume properties kept in the index
+     */
+    public static class IndexedVolume
+    {
+        private final String id;
+        private final String creationToken;
+        private final String subnetId;
+        private final List<String> ipAddresses;
+        private final List<String> smbServerFqdns;
+
+        private IndexedVolume(String id, String creationToken, String subnetId, List<String> ipAddresses, List<String> smbServerFqdns)
+        {
+            this.id = id;
+            this.creationToken = creationToken;
+            this.subnetId = subnetId;
+            this.ipAddresses = ipAddresses;
+            this.smbServerFqdns = smbServerFqdns;
+        }
+
+        static IndexedVolume from(VolumeInner volume)
+        {
+            Set<String> ipAddresses = new LinkedHashSet<>();
+            Set<String> smbServerFqdns = new LinkedHashSet<>();
+            if (volume.mountTargets() != null)
+            {
+                for (MountTargetProperties mountTarget : volume.mountTargets())
+                {
+                    String ipAddress = normalize(mountTarget.ipAddress());
+                    if (ipAddress != null)
+                        ipAddresses.add(ipAddress);
+
+                    String smbServerFqdn = normalize(mountTarget.smbServerFqdn());
+                    if (smbServerFqdn != null)
+                        smbServerFqdns.add(smbServerFqdn);
+                }
+            }
+
+            return new IndexedVolume(volume.id(),
+                    normalize(volume.creationToken()),
+                    normalize(volume.subnetId()),
+                    List.copyOf(ipAddresses),
+                    List.copyOf(smbServerFqdns));
+        }
+
+        String getKey()
+        {
+            return normalize(id);
+        }
+
+        public String getId()
+        {
+            return id;
+        }
+
+        public String getResourceGroup()
+        {
+            return ResourceUriUtils.getResourceGroup(id);
+        }
+
+        public String getAccount()
+        {
+            return ResourceUriUtils.getAnfAccount(id);
+        }
+
+        public String getPool()
+        {
+            return ResourceUriUtils.getAnfCapacityPool(id);
+        }
+
+        public String getVolume()
+        {
+            return ResourceUriUtils.getAnfVolume(id);
+        }
+
+        public String getCreationToken()
+        {
+            return creationToken;
+        }
+
+        public String getSubnetId()
+        {
+            return subnetId;
+        }
+
+        public List<String> getIpAddresses()
+        {
+            return ipAddresses;
+        }
+
+        public List<String> getSmbServerFqdns()
+        {
+            return smbServerFqdns;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o)
+                return true;
+            if (!(o instanceof IndexedVolume))
+                return false;
+
+            IndexedVolume that = (IndexedVolume) o;
+            return Objects.equals(id, that.id)
+                    && Objects.equals(creationToken, that.creationToken)
+                    && Objects.equals(subnetId, that.subnetId)
+                    && ipAddresses.equals(that.ipAddresses)
+                    && smbServerFqdns.equals(that.smbServerFqdns);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(id, creationToken, subnetId, ipAddresses, smbServerFqdns);
+        }
+
+        @Override
+        public String toString()
+        {
+            return id + " (creationToken: " + creationToken + ", IP: " + ipAddresses + ", SMB FQDN: " + smbServerFqdns + ")";
+        }
+    }
+}
@@ -0,0 +1,56 @@
+// Copyright (c) Microsoft and contributors.  All rights reserved.
+//
+// This source code is licensed under the MIT license found in the
+// LICENSE file in the root directory of this source tree.
+
+package dualprotocol.sdk.sample.common;
+
+import com.azure.core.http.policy.HttpPipelinePolicy;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Reports how long after JVM start the first management request was sent and answered
+public class StartupTimer
+{
+    public static final String TIMING_PROPERTY = "anf.startup.timing";
+    public static final String FIRST_REQUEST_MARKER = "TIME_TO_FIRST_REQUEST_MS=";
+    public static final String FIRST_RESPONSE_MARKER = "TIME_TO_FIRST_RESPONSE_MS=";
+
+    private static final AtomicBoolean firstRequestSeen = new AtomicBoolean();
+    private static final AtomicBoolean firstResponseSeen = new AtomicBoolean();
+
+    /**
+     * @return True when the JVM was started with -Danf.startup.timing=true
+     */
+    public static boolean isEnabled()
+    {
+        return Boolean.getBoolean(TIMING_PROPERTY);
+    }
+
+    /**
+     * Pipeline policy that prints the JVM uptime when the first request is sent and when its response arrives
+     * @return Policy to add to the management client pipeline
+     */
+    public static HttpPipelinePolicy policy()
+    {
+        return (context, next) -> {
+            if (firstRequestSeen.compareAndSet(false, true))
+            {
+                System.out.println(FIRST_REQUEST_MARKER + uptime());
+            }
+
+            return next.process().doOnSuccess(response -> {
+                if (firstResponseSeen.compareAndSet(false, true))
+                {
+                    System.out.println(FIRST_RESPONSE_MARKER + uptime());
+                }
+            });
+        };
+    }
+
+    private static long uptime()
+    {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+}
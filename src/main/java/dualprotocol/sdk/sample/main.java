@@ -9,44 +9,71 @@ import com.azure.core.credential.TokenCredential;
 import com.azure.core.exception.AzureException;
 import com.azure.core.management.AzureEnvironment;
 import com.azure.core.management.profile.AzureProfile;
-import com.azure.identity.DefaultAzureCredentialBuilder;
 import com.azure.resourcemanager.netapp.NetAppFilesManager;
 import com.azure.resourcemanager.netapp.fluent.models.CapacityPoolInner;
 import com.azure.resourcemanager.netapp.fluent.models.NetAppAccountInner;
+import com.azure.resourcemanager.netapp.fluent.models.SnapshotPolicyInner;
 import com.azure.resourcemanager.netapp.fluent.models.VolumeInner;
 import com.azure.resourcemanager.netapp.models.ActiveDirectory;
+import com.azure.resourcemanager.netapp.models.DailySchedule;
+import com.azure.resourcemanager.netapp.models.HourlySchedule;
+import com.azure.resourcemanager.netapp.models.MonthlySchedule;
 import com.azure.resourcemanager.netapp.models.SecurityStyle;
 import com.azure.resourcemanager.netapp.models.ServiceLevel;
+import com.azure.resourcemanager.netapp.models.SnapshotPolicyPatch;
+import com.azure.resourcemanager.netapp.models.WeeklySchedule;
+import dualprotocol.sdk.sample.common.CommandArgs;
 import dualprotocol.sdk.sample.common.CommonSdk;
+import dualprotocol.sdk.sample.common.CredentialSourceCache;
+import dualprotocol.sdk.sample.common.MountTargetIndex;
+import dualprotocol.sdk.sample.common.StartupTimer;
 import dualprotocol.sdk.sample.common.Utils;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 public class main
 {
+    private static final int NOT_FOUND_EXIT_CODE = 2;
+
     /**
      * Sample console application that executes CRUD management operations on Azure NetApp Files resources
      * Showcases how to create a Dual-Protocol Volume - A Volume using both NFS and SMB protocols
-     * @param args
+     * When a command is passed as argument only that command is executed, see runCommand for the list of commands
+     * @param args Optional command and its arguments
      */
     public static void main( String[] args )
     {
         Utils.displayConsoleAppHeader();
 
+        int exitCode = 0;
         try
         {
-            run();
+            if (args.length > 0)
+            {
+                exitCode = runCommand(args);
+            }
+            else
+            {
+                run();
+            }
             Utils.writeConsoleMessage("Sample application successfully completed execution");
         }
         catch (Exception e)
         {
             Utils.writeErrorMessage(e.getMessage());
+            exitCode = 1;
         }
 
-        System.exit(0);
+        System.exit(exitCode);
     }
 
     private static void run()
@@ -81,13 +108,7 @@ public class main
 
 
         // Instantiating a new ANF management client and authenticate
-        AzureProfile profile = new AzureProfile(AzureEnvironment.AZURE);
-        TokenCredential credential = new DefaultAzureCredentialBuilder()
-                .authorityHost(profile.getEnvironment().getActiveDirectoryEndpoint())
-                .build();
-        Utils.writeConsoleMessage("Instantiating a new Azure NetApp Files management client...");
-        NetAppFilesManager manager = NetAppFilesManager
-                .authenticate(credential, profile);
+        NetAppFilesManager manager = authenticate();
 
         //------------------------------------------------------------------------------------------------------
         // Getting Active Directory Identity's password (from identity that has rights to domain join computers)
@@ -206,4 +227,419 @@ public class main
             }
         }
     }
+
+    /**
+     * Executes a single command instead of the end to end sample
+     * Valid commands:
+     *   index           -> Finds the Volumes behind an NFS IP address, SMB server FQDN, subnet id or creation token
+     *   snapshot-policy -> Creates or updates a Snapshot Policy and assigns it to the Volumes matching a filter
+     *   replicate       -> Sets up cross-region replication for the Volumes of a pool and tracks the mirror state
+     *   exists          -> Checks whether an ANF resource exists, exits with code 2 if it does not
+     *   startup-benchmark -> Measures time-to-first-request of other commands, optionally with an AppCDS archive
+     *   provision       -> Streams Volume requests from a CSV or NDJSON file and provisions them
+     * Commands only authenticate when they call the service, and only provision may prompt for the AD password
+     * @param args Command name followed by its arguments
+     * @return Process exit code, 0 on success
+     */
+    private static int runCommand(String[] args) throws IOException, InterruptedException
+    {
+        switch (args[0])
+        {
+            case "index":
+                queryIndex(args);
+                break;
+
+            case "snapshot-policy":
+                assignSnapshotPolicy(args);
+                break;
+
+            case "replicate":
+                replicate(args);
+                break;
+
+            case "exists":
+                if (!checkExists(args))
+                {
+                    return NOT_FOUND_EXIT_CODE;
+                }
+                break;
+
+            case "startup-benchmark":
+                runStartupBenchmark(args);
+                break;
+
+            case "provision":
+                provisionFromFile(args);
+                break;
+
+            default:
+                throw new IllegalArgumentException("Unknown command: " + args[0]);
+        }
+
+        return 0;
+    }
+
+    /**
+     * Loads the mount targets of all Volumes into a MountTargetIndex and looks up the Volumes matching the query
+     * @param args index, value to look up and optional resource group to limit the scope of the index
+     */
+    private static void queryIndex(String[] args)
+    {
+        CommandArgs commandArgs = new CommandArgs(args, "index <ip-address|smb-fqdn|subnet-id|creation-token> [resource-group]");
+        String query = commandArgs.positional(0);
+        String resourceGroupName = commandArgs.positional(1, null);
+
+        NetAppFilesManager manager = authenticate();
+
+        Utils.writeConsoleMessage("Loading mount targets into index...");
+        MountTargetIndex index = new MountTargetIndex();
+        index.refresh(manager.serviceClient(), resourceGroupName);
+        Utils.writeConsoleMessage("Indexed " + index.size() + " Volumes");
+
+        long start = System.nanoTime();
+        List<MountTargetIndex.IndexedVolume> volumes = index.find(query);
+        long elapsedMicros = (System.nanoTime() - start) / 1000;
+
+        if (volumes.isEmpty())
+        {
+            Utils.writeWarningMessage("No Volume found for: " + query);
+        }
+        for (MountTargetIndex.IndexedVolume volume : volumes)
+        {
+            Utils.writeSuccessMessage("Volume: " + volume);
+        }
+        Utils.writeConsoleMessage("Lookup completed in " + elapsedMicros + " microseconds");
+    }
+
+    /**
+     * Creates or updates a Snapshot Policy and assigns it, together with any requested tags, to all Volumes of the
+     * Account that match the pool, tag and name filters. Each Volume receives a single PATCH and PATCHes run concurrently
+     * @param args snapshot-policy, resource group, Account name, Snapshot Policy name and options
+     */
+    private static void assignSnapshotPolicy(String[] args)
+    {
+        CommandArgs commandArgs = new CommandArgs(args, "snapshot-policy <resource-group> <account> <policy-name> "
+                + "[--hourly <snapshots-to-keep>] [--daily <snapshots-to-keep>] [--weekly <snapshots-to-keep>] [--monthly <snapshots-to-keep>] "
+                + "[--pool <pool-name>] [--tag <key=value>]... [--name <regex>] [--set-tag <key=value>]... [--concurrency <n>]");
+        String resourceGroupName = commandArgs.positional(0);
+        String anfAccountName = commandArgs.positional(1);
+        String snapshotPolicyName = commandArgs.positional(2);
+        int hourlySnapshotsToKeep = commandArgs.intOption("hourly", 0);
+        int dailySnapshotsToKeep = commandArgs.intOption("daily", 0);
+        int weeklySnapshotsToKeep = commandArgs.intOption("weekly", 0);
+        int monthlySnapshotsToKeep = commandArgs.intOption("monthly", 0);
+        int concurrency = commandArgs.intOption("concurrency", 16);
+        Map<String, String> tagsToSet = commandArgs.keyValueOptions("set-tag");
+        BulkVolumeUpdate.VolumeFilter filter = new BulkVolumeUpdate.VolumeFilter(
+                commandArgs.option("pool", null),
+                commandArgs.keyValueOptions("tag"),
+                commandArgs.option("name", null));
+
+        NetAppFilesManager manager = authenticate();
+
+        String[] accountParams = {resourceGroupName, anfAccountName};
+        NetAppAccountInner anfAccount = (NetAppAccountInner) CommonSdk.getResource(manager.serviceClient(), accountParams, NetAppAccountInner.class);
+        if (anfAccount == null)
+        {
+            throw new IllegalArgumentException("Account not found: " + anfAccountName);
+        }
+
+        //---------------------------
+        // Create Snapshot Policy
+        //---------------------------
+        String[] snapshotPolicyParams = {resourceGroupName, anfAccountName, snapshotPolicyName};
+        SnapshotPolicyInner existingSnapshotPolicy = (SnapshotPolicyInner) CommonSdk.getExistingResource(manager.serviceClient(),
+                snapshotPolicyParams, SnapshotPolicyInner.class);
+        boolean schedulesGiven = hourlySnapshotsToKeep > 0 || dailySnapshotsToKeep > 0
+                || weeklySnapshotsToKeep > 0 || monthlySnapshotsToKeep > 0;
+
+        SnapshotPolicyInner snapshotPolicy;
+        if (existingSnapshotPolicy != null && !schedulesGiven)
+        {
+            Utils.writeConsoleMessage("Using existing Snapshot Policy, resourceId: " + existingSnapshotPolicy.id());
+            snapshotPolicy = existingSnapshotPolicy;
+        }
+        else if (existingSnapshotPolicy != null)
+        {
+            Utils.writeConsoleMessage("Updating Snapshot Policy schedules...");
+
+            // Only the schedules given on the command line are sent, the service keeps the others as they are
+            SnapshotPolicyPatch snapshotPolicyPatch = new SnapshotPolicyPatch();
+            if (hourlySnapshotsToKeep > 0)
+                snapshotPolicyPatch.withHourlySchedule(hourlySchedule(existingSnapshotPolicy.hourlySchedule(), hourlySnapshotsToKeep));
+            if (dailySnapshotsToKeep > 0)
+                snapshotPolicyPatch.withDailySchedule(dailySchedule(existingSnapshotPolicy.dailySchedule(), dailySnapshotsToKeep));
+            if (weeklySnapshotsToKeep > 0)
+                snapshotPolicyPatch.withWeeklySchedule(weeklySchedule(existingSnapshotPolicy.weeklySchedule(), weeklySnapshotsToKeep));
+            if (monthlySnapshotsToKeep > 0)
+                snapshotPolicyPatch.withMonthlySchedule(monthlySchedule(existingSnapshotPolicy.monthlySchedule(), monthlySnapshotsToKeep));
+
+            snapshotPolicy = Creation.updateSnapshotPolicy(manager.serviceClient(), snapshotPolicyParams, snapshotPolicyPatch);
+        }
+        else if (schedulesGiven)
+        {
+            Utils.writeConsoleMessage("Creating Snapshot Policy...");
+
+            SnapshotPolicyInner newSnapshotPolicy = new SnapshotPolicyInner();
+            newSnapshotPolicy.withLocation(anfAccount.location());
+            newSnapshotPolicy.withEnabled(true);
+            if (hourlySnapshotsToKeep > 0)
+                newSnapshotPolicy.withHourlySchedule(hourlySchedule(null, hourlySnapshotsToKeep));
+            if (dailySnapshotsToKeep > 0)
+                newSnapshotPolicy.withDailySchedule(dailySchedule(null, dailySnapshotsToKeep));
+            if (weeklySnapshotsToKeep > 0)
+                newSnapshotPolicy.withWeeklySchedule(weeklySchedule(null, weeklySnapshotsToKeep));
+            if (monthlySnapshotsToKeep > 0)
+                newSnapshotPolicy.withMonthlySchedule(monthlySchedule(null, monthlySnapshotsToKeep));
+
+            snapshotPolicy = Creation.createSnapshotPolicy(manager.serviceClient(), snapshotPolicyParams, newSnapshotPolicy);
+        }
+        else
+        {
+            throw new IllegalArgumentException("Snapshot Policy " + snapshotPolicyName
+                    + " does not exist, at least one of --hourly, --daily, --weekly or --monthly is required to create it");
+        }
+
+        //---------------------------
+        // Assign it to the Volumes
+        //---------------------------
+        Utils.writeConsoleMessage("Finding Volumes matching the filter...");
+        List<VolumeInner> volumes = BulkVolumeUpdate.findVolumes(manager.serviceClient(), accountParams, filter);
+        Utils.writeConsoleMessage("Found " + volumes.size() + " Volumes");
+
+        BulkVolumeUpdate bulkUpdate = new BulkVolumeUpdate();
+        for (VolumeInner volume : volumes)
+        {
+            bulkUpdate.queueSnapshotPolicy(volume, snapshotPolicy.id());
+            bulkUpdate.queueTags(volume, tagsToSet);
+        }
+
+        Utils.writeConsoleMessage("Updating " + bulkUpdate.size() + " Volumes...");
+        BulkVolumeUpdate.Result result = bulkUpdate.apply(manager.serviceClient(), concurrency);
+
+        Utils.writeSuccessMessage("Volumes updated: " + result.getUpdated() + ", already up to date: " + result.getSkipped());
+        if (!result.getFailures().isEmpty())
+        {
+            for (Map.Entry<String, String> failure : result.getFailures().entrySet())
+            {
+                Utils.writeErrorMessage(failure.getKey() + ": " + failure.getValue());
+            }
+            throw new IllegalStateException(result.getFailures().size() + " Volumes could not be updated");
+        }
+    }
+
+    // Keeps the time of day of an existing schedule and only changes how many snapshots it keeps
+    private static HourlySchedule hourlySchedule(HourlySchedule current, int snapshotsToKeep)
+    {
+        return (current != null ? current : new HourlySchedule().withMinute(0)).withSnapshotsToKeep(snapshotsToKeep);
+    }
+
+    private static DailySchedule dailySchedule(DailySchedule current, int snapshotsToKeep)
+    {
+        return (current != null ? current : new DailySchedule().withHour(0).withMinute(0)).withSnapshotsToKeep(snapshotsToKeep);
+    }
+
+    private static WeeklySchedule weeklySchedule(WeeklySchedule current, int snapshotsToKeep)
+    {
+        return (current != null ? current : new WeeklySchedule().withDay("Sunday").withHour(0).withMinute(0)).withSnapshotsToKeep(snapshotsToKeep);
+    }
+
+    private static MonthlySchedule monthlySchedule(MonthlySchedule current, int snapshotsToKeep)
+    {
+        return (current != null ? current : new MonthlySchedule().withDaysOfMonth("1").withHour(0).withMinute(0)).withSnapshotsToKeep(snapshotsToKeep);
+    }
+
+    /**
+     * Creates a data protection Volume in the destination pool for every Volume of the source pool that matches the name
+     * filter, authorizes the replications, and then tracks all pairs until they are mirrored or the timeout expires
+     * @param args replicate, source and destination pool coordinates, destination subnet id and options
+     */
+    private static void replicate(String[] args)
+    {
+        CommandArgs commandArgs = new CommandArgs(args, "replicate <source-resource-group> <source-account> <source-pool> "
+                + "<destination-resource-group> <destination-account> <destination-pool> <destination-subnet-id> "
+                + "[--name <regex>] [--schedule <_10minutely|hourly|daily>] [--concurrency <n>] [--interval <seconds>] [--timeout <minutes>]");
+        String[] sourceAccountParams = {commandArgs.positional(0), commandArgs.positional(1)};
+        String sourcePoolName = commandArgs.positional(2);
+        String[] destinationPoolParams = {commandArgs.positional(3), commandArgs.positional(4), commandArgs.positional(5)};
+        String destinationSubnetId = commandArgs.positional(6);
+        String replicationSchedule = commandArgs.option("schedule", "_10minutely");
+        int concurrency = commandArgs.intOption("concurrency", 16);
+        int intervalInSec = commandArgs.intOption("interval", 30);
+        int timeoutInMin = commandArgs.intOption("timeout", 120);
+        BulkVolumeUpdate.VolumeFilter filter = new BulkVolumeUpdate.VolumeFilter(
+                sourcePoolName,
+                Collections.emptyMap(),
+                commandArgs.option("name", null));
+
+        NetAppFilesManager manager = authenticate();
+
+        Utils.writeConsoleMessage("Finding source Volumes...");
+        List<VolumeInner> sourceVolumes = BulkVolumeUpdate.findVolumes(manager.serviceClient(), sourceAccountParams, filter);
+        Utils.writeConsoleMessage("Found " + sourceVolumes.size() + " source Volumes");
+
+        //---------------------------
+        // Set up replication pairs
+        //---------------------------
+        Utils.writeConsoleMessage("Creating destination Volumes and authorizing replication...");
+        Map<String, String> failures = new ConcurrentHashMap<>();
+        List<Replication.ReplicationPair> pairs = Replication.setupReplication(manager.serviceClient(), sourceVolumes,
+                destinationPoolParams, destinationSubnetId, replicationSchedule, concurrency, failures);
+
+        //---------------------------
+        // Track mirror state
+        //---------------------------
+        Utils.writeConsoleMessage("Waiting for " + pairs.size() + " replication pairs to be mirrored...");
+        ReplicationTracker tracker = new ReplicationTracker(pairs, concurrency, 5);
+        boolean mirrored = tracker.waitForMirrored(manager.serviceClient(), intervalInSec, timeoutInMin * 60);
+
+        if (!failures.isEmpty())
+        {
+            for (Map.Entry<String, String> failure : failures.entrySet())
+            {
+                Utils.writeErrorMessage(failure.getKey() + ": " + failure.getValue());
+            }
+            throw new IllegalStateException(failures.size() + " replication pairs could not be set up");
+        }
+        if (!mirrored)
+        {
+            throw new IllegalStateException("Not all replication pairs were mirrored within " + timeoutInMin + " minutes");
+        }
+        Utils.writeSuccessMessage("All " + pairs.size() + " replication pairs are mirrored");
+    }
+
+    /**
+     * Checks whether a single ANF resource exists. Errors other than not found, such as missing permissions or
+     * throttling, are reported as errors instead of as a missing resource
+     * @param args exists and the resource id of an Account, Snapshot Policy, Capacity Pool, Volume or Snapshot
+     * @return True if the resource exists
+     */
+    private static boolean checkExists(String[] args)
+    {
+        CommandArgs commandArgs = new CommandArgs(args, "exists <resource-id>");
+        String resourceId = commandArgs.positional(0);
+
+        NetAppFilesManager manager = authenticate();
+
+        if (CommonSdk.getResourceById(manager.serviceClient(), resourceId) == null)
+        {
+            Utils.writeWarningMessage("Resource not found: " + resourceId);
+            return false;
+        }
+        Utils.writeSuccessMessage("Resource exists: " + resourceId);
+        return true;
+    }
+
+    /**
+     * Runs each given command several times in fresh JVMs and reports its time-to-first-request. With --archive, an AppCDS
+     * archive is built from a training run of the first command (unless it already exists) and the commands are measured
+     * with and without it
+     * @param args startup-benchmark, one quoted command line per command to measure and options
+     */
+    private static void runStartupBenchmark(String[] args) throws IOException, InterruptedException
+    {
+        CommandArgs commandArgs = new CommandArgs(args, "startup-benchmark \"<command> [args]\"... "
+                + "[--iterations <n>] [--archive <file.jsa>] [--classpath <jars>]");
+        int iterations = commandArgs.intOption("iterations", 5);
+        String archiveFile = commandArgs.option("archive", null);
+        String classpath = commandArgs.option("classpath", System.getProperty("java.class.path"));
+
+        List<List<String>> commands = new ArrayList<>();
+        for (int i = 0; commandArgs.positional(i, null) != null; i++)
+        {
+            commands.add(List.of(commandArgs.positional(i).trim().split("\\s+")));
+        }
+        if (commands.isEmpty())
+        {
+            throw new IllegalArgumentException("At least one command to measure is required");
+        }
+
+        Path archive = archiveFile == null ? null : Path.of(archiveFile);
+        StartupBenchmark benchmark = new StartupBenchmark(classpath, archive);
+        if (archive != null && !Files.exists(archive))
+        {
+            Utils.writeConsoleMessage("Training AppCDS archive with: " + String.join(" ", commands.get(0)));
+            benchmark.train(commands.get(0));
+        }
+
+        benchmark.run(commands, iterations);
+    }
+
+    /**
+     * Streams Volume requests from a CSV or NDJSON file, creating missing Accounts and Capacity Pools once and the Volumes
+     * through a bounded queue of workers. The AD password is only asked for, and the Root CA certificate only read, when
+     * an Active Directory connection has to be added to an Account hosting CIFS Volumes, whether the Account is new,
+     * existed without one, or was created by an NFS-only line
+     * @param args provision, input file, result file and options
+     */
+    private static void provisionFromFile(String[] args) throws IOException, InterruptedException
+    {
+        CommandArgs commandArgs = new CommandArgs(args, "provision <input-file> <result-file> [--format <csv|ndjson>] "
+                + "[--workers <n>] [--queue <n>] [--ad-user <user> --ad-dns <dns-list> --ad-domain <fqdn> --ad-cert <root-ca-cert-file>]");
+        Path inputFile = Path.of(commandArgs.positional(0));
+        Path resultFile = Path.of(commandArgs.positional(1));
+        String inputName = inputFile.getFileName().toString().toLowerCase();
+        String format = commandArgs.option("format", inputName.endsWith(".ndjson") || inputName.endsWith(".jsonl") ? "ndjson" : "csv");
+        int workers = commandArgs.intOption("workers", 8);
+        int queueCapacity = commandArgs.intOption("queue", 32);
+        String domainJoinUsername = commandArgs.option("ad-user", null);
+        String dnsList = commandArgs.option("ad-dns", null);
+        String adFQDN = commandArgs.option("ad-domain", null);
+        String rootCACertFullFilePath = commandArgs.option("ad-cert", null);
+
+        Supplier<ActiveDirectory> activeDirectorySupplier = null;
+        if (domainJoinUsername != null && dnsList != null && adFQDN != null && rootCACertFullFilePath != null)
+        {
+            activeDirectorySupplier = () -> {
+                System.out.println("Please type Active Directory's user password that will domain join ANF's SMB server and press [ENTER]:");
+                String domainJoinUserPassword = Utils.getConsolePassword();
+
+                String certContent = Utils.getRootCACert(rootCACertFullFilePath);
+                if (certContent == null)
+                {
+                    throw new IllegalStateException("Could not read Root CA certificate: " + rootCACertFullFilePath);
+                }
+
+                ActiveDirectory activeDirectory = new ActiveDirectory();
+                activeDirectory.withUsername(domainJoinUsername);
+                activeDirectory.withPassword(domainJoinUserPassword);
+                activeDirectory.withDns(dnsList);
+                activeDirectory.withDomain(adFQDN);
+                activeDirectory.withServerRootCACertificate(Base64.getEncoder().encodeToString(certContent.getBytes()));
+                return activeDirectory;
+            };
+        }
+
+        NetAppFilesManager manager = authenticate();
+
+        Utils.writeConsoleMessage("Provisioning Volumes from " + inputFile + "...");
+        ProvisioningPipeline pipeline = new ProvisioningPipeline(manager.serviceClient(), workers, queueCapacity, activeDirectorySupplier);
+        Map<String, Integer> counts = pipeline.run(inputFile, resultFile, "ndjson".equalsIgnoreCase(format));
+
+        Utils.writeConsoleMessage("Results written to " + resultFile + ": " + counts);
+        if (counts.containsKey("invalid") || counts.containsKey("failed"))
+        {
+            throw new IllegalStateException("Some lines could not be provisioned, see " + resultFile);
+        }
+    }
+
+    /**
+     * Instantiates a new ANF management client and authenticates using the credential source that worked last time,
+     * or the first source of the default credential chain that works
+     * @return Authenticated Azure NetApp Files manager
+     */
+    private static NetAppFilesManager authenticate()
+    {
+        AzureProfile profile = new AzureProfile(AzureEnvironment.AZURE);
+        TokenCredential credential = CredentialSourceCache.getCredential(profile);
+        Utils.writeConsoleMessage("Instantiating a new Azure NetApp Files management client...");
+
+        NetAppFilesManager.Configurable configurable = NetAppFilesManager.configure();
+        if (StartupTimer.isEnabled())
+        {
+            configurable.withPolicy(StartupTimer.policy());
+        }
+        return configurable
+                .authenticate(credential, profile);
+    }
 }
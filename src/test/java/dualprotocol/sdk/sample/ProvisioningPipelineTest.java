@@ -0,0 +1,291 @@
+// Copyright (c) Microsoft and contributors.  All rights reserved.
+//
+// This source code is licensed under the MIT license found in the
+// LICENSE file in the root directory of this source tree.
+
+package dualprotocol.sdk.sample;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ProvisioningPipelineTest
+{
+    private static final String HEADER = "resourceGroup,location,account,pool,volume,sizeGiB,protocolTypes,subnetId,smbServerNamePrefix";
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    @Test
+    void resultsAreWrittenInInputOrder()
+    {
+        int lines = 50;
+        // Earlier lines take longer, so results complete out of order
+        ProvisioningPipeline pipeline = new ProvisioningPipeline(4, 4, request -> {
+            sleep(volumeIndex(request) % 5 == 0 ? 20 : 1);
+            return new ProvisioningPipeline.Outcome("created", request.getVolume());
+        });
+
+        StringWriter output = new StringWriter();
+        Map<String, Integer> counts = assertTimeoutPreemptively(TIMEOUT, () -> run(pipeline, csv(lines), output));
+
+        List<String> results = output.toString().lines().collect(Collectors.toList());
+        assertEquals("line,status,detail", results.get(0));
+        assertEquals("1,header,\"\"", results.get(1));
+        for (int i = 1; i <= lines; i++)
+        {
+            assertEquals((i + 1) + ",created,\"vol" + i + "\"", results.get(i + 1));
+        }
+        assertEquals(lines + 2, results.size());
+        assertEquals(lines, counts.get("created"));
+    }
+
+    @Test
+    void readingPausesWhileQueueIsFull()
+    {
+        int workers = 1;
+        int queueCapacity = 2;
+        CountDownLatch release = new CountDownLatch(1);
+        ProvisioningPipeline pipeline = new ProvisioningPipeline(workers, queueCapacity, request -> {
+            await(release);
+            return new ProvisioningPipeline.Outcome("created", request.getVolume());
+        });
+
+        AtomicInteger linesRead = new AtomicInteger();
+        BufferedReader reader = new BufferedReader(new StringReader(csv(100)))
+        {
+            @Override
+            public String readLine() throws IOException
+            {
+                linesRead.incrementAndGet();
+                return super.readLine();
+            }
+        };
+
+        CompletableFuture<Map<String, Integer>> result = CompletableFuture.supplyAsync(() -> run(pipeline, reader, new StringWriter()));
+        sleep(300);
+
+        // The header, one line per worker and queue slot, and the line waiting for a result permit
+        assertTrue(linesRead.get() <= 1 + workers + queueCapacity + 1, "read " + linesRead.get() + " lines");
+        assertFalse(result.isDone());
+
+        release.countDown();
+        Map<String, Integer> counts = assertTimeoutPreemptively(TIMEOUT, () -> result.join());
+        assertEquals(100, counts.get("created"));
+    }
+
+    @Test
+    void provisioningErrorsAreReportedPerLine()
+    {
+        ProvisioningPipeline pipeline = new ProvisioningPipeline(2, 2, request -> {
+            if ("vol1".equals(request.getVolume()))
+                throw new IllegalArgumentException("rejected by service");
+            if ("vol2".equals(request.getVolume()))
+                throw new IllegalStateException("throttled");
+            return new ProvisioningPipeline.Outcome("exists", request.getVolume());
+        });
+
+        StringWriter output = new StringWriter();
+        Map<String, Integer> counts = run(pipeline, csv(3), output);
+
+        assertTrue(output.toString().contains("2,invalid,\"rejected by service\""));
+        assertTrue(output.toString().contains("3,failed,\"throttled\""));
+        assertTrue(output.toString().contains("4,exists,\"vol3\""));
+        assertEquals(1, counts.get("invalid"));
+        assertEquals(1, counts.get("failed"));
+    }
+
+    @Test
+    void headerIsTheFirstNonBlankLine()
+    {
+        StringWriter output = new StringWriter();
+        run(createdPipeline(), "\n" + HEADER + "\n" + row(1) + "\n", output);
+
+        assertTrue(output.toString().contains("1,skipped,\"blank line\""));
+        assertTrue(output.toString().contains("2,header,\"\""));
+        assertTrue(output.toString().contains("3,created,\"vol1\""));
+    }
+
+    @Test
+    void unknownColumnsAreIgnored()
+    {
+        StringWriter output = new StringWriter();
+        Map<String, Integer> counts = run(createdPipeline(), HEADER + ",owner\n" + row(1) + ",team-a\n", output);
+
+        assertTrue(output.toString().contains("1,header,\"ignored columns: owner\""));
+        assertEquals(1, counts.get("created"));
+    }
+
+    @Test
+    void rowsAfterAnUnusableHeaderAreInvalid()
+    {
+        for (String header : List.of("name,size", "\"resourceGroup,location", "volume,volume"))
+        {
+            StringWriter output = new StringWriter();
+            Map<String, Integer> counts = run(createdPipeline(), header + "\n" + HEADER + "\n" + row(1) + "\n", output);
+
+            assertTrue(output.toString().contains("1,invalid,"), output.toString());
+            assertTrue(output.toString().contains("2,invalid,\"no valid header\""), output.toString());
+            assertTrue(output.toString().contains("3,invalid,\"no valid header\""), output.toString());
+            assertEquals(3, counts.get("invalid"));
+        }
+    }
+
+    @Test
+    void conflictingSmbServerNamePrefixIsInvalid()
+    {
+        String input = HEADER + "\n"
+                + "rg,westus,account1,pool1,vol1,100,NFSv3;CIFS,subnet,smb1\n"
+                + "rg,westus,account1,pool1,vol2,100,NFSv3;CIFS,subnet,SMB1\n"
+                + "rg,westus,account1,pool1,vol3,100,NFSv3;CIFS,subnet,smb2\n"
+                + "rg,westus,account2,pool1,vol4,100,NFSv3;CIFS,subnet,smb2\n";
+
+        StringWriter output = new StringWriter();
+        Map<String, Integer> counts = run(createdPipeline(), input, output);
+
+        assertTrue(output.toString().contains("4,invalid,\"smbServerNamePrefix smb2 conflicts with smb1"));
+        assertEquals(3, counts.get("created"));
+    }
+
+    @Test
+    void jsonLinesAreReportedIndividually()
+    {
+        String input = "{\"resourceGroup\": \"rg\", \"location\": \"westus\", \"account\": \"account1\", \"pool\": \"pool1\", "
+                + "\"volume\": \"vol1\", \"sizeGiB\": 100, \"protocolTypes\": [\"NFSv4.1\"], \"subnetId\": \"subnet\"}\n"
+                + "{not json\n";
+
+        StringWriter output = new StringWriter();
+        Map<String, Integer> counts = assertTimeoutPreemptively(TIMEOUT,
+                () -> createdPipeline().run(new BufferedReader(new StringReader(input)), new BufferedWriter(output), true));
+
+        assertTrue(output.toString().contains("1,created,\"vol1\""));
+        assertTrue(output.toString().contains("2,invalid,"));
+        assertEquals(1, counts.get("invalid"));
+    }
+
+    @Test
+    void writeErrorStopsReadingAndFailsTheRun()
+    {
+        AtomicInteger provisioned = new AtomicInteger();
+        ProvisioningPipeline pipeline = new ProvisioningPipeline(2, 2, request -> {
+            provisioned.incrementAndGet();
+            return new ProvisioningPipeline.Outcome("created", request.getVolume());
+        });
+
+        // Accepts the column names and a few results, then fails like a full disk
+        Writer failingWriter = new Writer()
+        {
+            private int flushes;
+
+            @Override
+            public void write(char[] buffer, int offset, int length)
+            {
+            }
+
+            @Override
+            public void flush() throws IOException
+            {
+                if (++flushes > 5)
+                    throw new IOException("No space left on device");
+            }
+
+            @Override
+            public void close()
+            {
+            }
+        };
+
+        IOException e = assertTimeoutPreemptively(TIMEOUT, () -> assertThrows(IOException.class,
+                () -> pipeline.run(new BufferedReader(new StringReader(csv(1000))), new BufferedWriter(failingWriter), false)));
+
+        assertEquals("No space left on device", e.getCause().getMessage());
+        assertTrue(provisioned.get() < 1000, "provisioned " + provisioned.get() + " lines");
+    }
+
+    private static ProvisioningPipeline createdPipeline()
+    {
+        return new ProvisioningPipeline(2, 2, request -> new ProvisioningPipeline.Outcome("created", request.getVolume()));
+    }
+
+    private static Map<String, Integer> run(ProvisioningPipeline pipeline, String input, StringWriter output)
+    {
+        return run(pipeline, new BufferedReader(new StringReader(input)), output);
+    }
+
+    private static Map<String, Integer> run(ProvisioningPipeline pipeline, BufferedReader reader, StringWriter output)
+    {
+        try (BufferedWriter writer = new BufferedWriter(output))
+        {
+            return pipeline.run(reader, writer, false);
+        }
+        catch (IOException | InterruptedException e)
+        {
+            throw new CompletionException(e);
+        }
+    }
+
+    private static String csv(int lines)
+    {
+        List<String> rows = new ArrayList<>();
+        rows.add(HEADER);
+        for (int i = 1; i <= lines; i++)
+        {
+            rows.add(row(i));
+        }
+
+        return String.join("\n", rows) + "\n";
+    }
+
+    private static String row(int index)
+    {
+        return "rg,westus,account1,pool1,vol" + index + ",100,NFSv4.1,subnet,";
+    }
+
+    private static int volumeIndex(ProvisioningRequest request)
+    {
+        return Integer.parseInt(request.getVolume().substring("vol".length()));
+    }
+
+    private static void sleep(long millis)
+    {
+        try
+        {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch)
+    {
+        try
+        {
+            latch.await(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
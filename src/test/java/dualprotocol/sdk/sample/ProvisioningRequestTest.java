@@ -0,0 +1,158 @@
+// Copyright (c) Microsoft and contributors.  All rights reserved.
+//
+// This source code is licensed under the MIT license found in the
+// LICENSE file in the root directory of this source tree.
+
+package dualprotocol.sdk.sample;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ProvisioningRequestTest
+{
+    private static final List<String> HEADER = List.of("resourceGroup", "location", "account", "pool", "volume", "sizeGiB",
+            "protocolTypes", "subnetId", "smbServerNamePrefix");
+
+    @Test
+    void validNfsRequestUsesDefaults()
+    {
+        ProvisioningRequest request = csv("rg,westus,account1,pool1,vol1,100,NFSv4.1,subnet,");
+        request.validate();
+
+        assertEquals("Standard", request.getServiceLevel());
+        assertEquals("unix", request.getSecurityStyle());
+        assertEquals("vol1", request.getCreationToken());
+        assertEquals(100L * 1024 * 1024 * 1024, request.getVolumeSize());
+        assertEquals(4L * 1024 * 1024 * 1024 * 1024, request.getPoolSize());
+        assertNull(request.getSmbServerNamePrefix());
+    }
+
+    @Test
+    void validDualProtocolRequest()
+    {
+        ProvisioningRequest request = csv("rg,westus,account1,pool1,vol1,102400,NFSv3;CIFS,subnet,smb0123456");
+        request.validate();
+
+        assertEquals(List.of("NFSv3", "CIFS"), request.getProtocolTypes());
+        assertTrue(request.isSmb());
+        assertEquals("ntfs", request.getSecurityStyle());
+    }
+
+    @Test
+    void smbServerNamePrefixLongerThanTenCharactersIsRejected()
+    {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> csv("rg,westus,account1,pool1,vol1,100,NFSv3;CIFS,subnet,smb01234567").validate());
+        assertTrue(e.getMessage().contains("smbServerNamePrefix must be at most 10 characters"));
+    }
+
+    @Test
+    void cifsRequiresSmbServerNamePrefix()
+    {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> csv("rg,westus,account1,pool1,vol1,100,CIFS,subnet,").validate());
+        assertTrue(e.getMessage().contains("smbServerNamePrefix is required"));
+    }
+
+    @Test
+    void nfsv3AndNfsv41CannotBeCombined()
+    {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> csv("rg,westus,account1,pool1,vol1,100,NFSv3;NFSv4.1,subnet,").validate());
+        assertTrue(e.getMessage().contains("NFSv3 and NFSv4.1 cannot be combined"));
+    }
+
+    @Test
+    void unknownProtocolTypeIsRejected()
+    {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> csv("rg,westus,account1,pool1,vol1,100,SMB,subnet,").validate());
+        assertTrue(e.getMessage().contains("protocol type SMB"));
+    }
+
+    @Test
+    void sizesOutsideServiceLimitsAreRejected()
+    {
+        for (String sizeGiB : List.of("99", "102401"))
+        {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                    () -> csv("rg,westus,account1,pool1,vol1," + sizeGiB + ",NFSv3,subnet,").validate());
+            assertTrue(e.getMessage().contains("sizeGiB must be between 100 and 102400"), e.getMessage());
+        }
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> csv("rg,westus,account1,pool1,vol1,1TiB,NFSv3,subnet,").validate());
+        assertTrue(e.getMessage().contains("sizeGiB must be a whole number"));
+
+        e = assertThrows(IllegalArgumentException.class, () -> ProvisioningRequest.fromJson(
+                "{\"resourceGroup\": \"rg\", \"location\": \"westus\", \"account\": \"account1\", \"pool\": \"pool1\", \"volume\": \"vol1\","
+                        + " \"sizeGiB\": 100, \"poolSizeTiB\": 2, \"protocolTypes\": [\"NFSv3\"], \"subnetId\": \"subnet\"}").validate());
+        assertTrue(e.getMessage().contains("poolSizeTiB must be at least 4"));
+    }
+
+    @Test
+    void everyProblemIsReported()
+    {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> csv(",westus,account1,1pool,vol1,,NFSv3,subnet,").validate());
+
+        assertTrue(e.getMessage().contains("resourceGroup is required"));
+        assertTrue(e.getMessage().contains("pool must be"));
+        assertTrue(e.getMessage().contains("sizeGiB is required"));
+    }
+
+    @Test
+    void quotedFieldsMayContainCommasAndQuotes()
+    {
+        assertEquals(Arrays.asList("a,b", "say \"hi\"", "", "c"), ProvisioningRequest.splitCsv("\"a,b\",\"say \"\"hi\"\"\",,c"));
+        assertEquals(Arrays.asList("", ""), ProvisioningRequest.splitCsv(","));
+    }
+
+    @Test
+    void unterminatedQuotedFieldIsRejected()
+    {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> ProvisioningRequest.splitCsv("a,\"b,c"));
+        assertEquals("Unterminated quoted field", e.getMessage());
+    }
+
+    @Test
+    void csvWithMoreFieldsThanColumnsIsRejected()
+    {
+        assertThrows(IllegalArgumentException.class, () -> ProvisioningRequest.fromCsv(List.of("resourceGroup"), "rg,westus"));
+    }
+
+    @Test
+    void csvIgnoresUnmappedColumns()
+    {
+        ProvisioningRequest request = ProvisioningRequest.fromCsv(Arrays.asList("volume", null, "sizeGiB"), "vol1,ignored,100");
+
+        assertEquals("vol1", request.getVolume());
+        assertEquals(100L * 1024 * 1024 * 1024, request.getVolumeSize());
+    }
+
+    @Test
+    void jsonAcceptsArrayOrSemicolonProtocolTypes()
+    {
+        assertEquals(List.of("NFSv3", "CIFS"), ProvisioningRequest.fromJson("{\"protocolTypes\": [\"NFSv3\", \" CIFS\"]}").getProtocolTypes());
+        assertEquals(List.of("NFSv3", "CIFS"), ProvisioningRequest.fromJson("{\"protocolTypes\": \"NFSv3;CIFS\"}").getProtocolTypes());
+    }
+
+    @Test
+    void malformedJsonIsRejected()
+    {
+        assertThrows(IllegalArgumentException.class, () -> ProvisioningRequest.fromJson("{\"volume\": "));
+        assertThrows(IllegalArgumentException.class, () -> ProvisioningRequest.fromJson("[1, 2]"));
+        assertThrows(IllegalArgumentException.class, () -> ProvisioningRequest.fromJson("{\"volume\": {\"name\": \"vol1\"}}"));
+    }
+
+    private static ProvisioningRequest csv(String line)
+    {
+        return ProvisioningRequest.fromCsv(HEADER, line);
+    }
+}
@@ -0,0 +1,79 @@
+// Copyright (c) Microsoft and contributors.  All rights reserved.
+//
+// This source code is licensed under the MIT license found in the
+// LICENSE file in the root directory of this source tree.
+
+package dualprotocol.sdk.sample.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CommandArgsTest
+{
+    private static final String USAGE = "test <first> [second]";
+
+    @Test
+    void splitsPositionalsAndOptions()
+    {
+        CommandArgs commandArgs = new CommandArgs(new String[] {"test", "rg", "--daily", "7", "account"}, USAGE);
+
+        assertEquals("rg", commandArgs.positional(0));
+        assertEquals("account", commandArgs.positional(1));
+        assertEquals("default", commandArgs.positional(2, "default"));
+        assertEquals("7", commandArgs.option("daily", null));
+        assertEquals(7, commandArgs.intOption("daily", 0));
+    }
+
+    @Test
+    void missingValuesUseDefaults()
+    {
+        CommandArgs commandArgs = new CommandArgs(new String[] {"test"}, USAGE);
+
+        assertNull(commandArgs.option("pool", null));
+        assertEquals(16, commandArgs.intOption("concurrency", 16));
+        assertTrue(commandArgs.options("tag").isEmpty());
+        assertTrue(commandArgs.keyValueOptions("tag").isEmpty());
+    }
+
+    @Test
+    void missingPositionalReportsUsage()
+    {
+        CommandArgs commandArgs = new CommandArgs(new String[] {"test"}, USAGE);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> commandArgs.positional(0));
+        assertTrue(e.getMessage().contains(USAGE));
+    }
+
+    @Test
+    void optionWithoutValueIsRejected()
+    {
+        assertThrows(IllegalArgumentException.class, () -> new CommandArgs(new String[] {"test", "rg", "--daily"}, USAGE));
+    }
+
+    @Test
+    void repeatedOptionsKeepEveryValueAndLastWins()
+    {
+        CommandArgs commandArgs = new CommandArgs(new String[] {"test", "--tag", "env=prod", "--tag", "owner=team=a", "--pool", "p1", "--pool", "p2"}, USAGE);
+
+        assertEquals(List.of("env=prod", "owner=team=a"), commandArgs.options("tag"));
+        assertEquals(Map.of("env", "prod", "owner", "team=a"), commandArgs.keyValueOptions("tag"));
+        assertEquals("p2", commandArgs.option("pool", null));
+    }
+
+    @Test
+    void malformedValuesAreRejected()
+    {
+        CommandArgs commandArgs = new CommandArgs(new String[] {"test", "--daily", "seven", "--tag", "=prod", "--set-tag", "env"}, USAGE);
+
+        assertThrows(IllegalArgumentException.class, () -> commandArgs.intOption("daily", 0));
+        assertThrows(IllegalArgumentException.class, () -> commandArgs.keyValueOptions("tag"));
+        assertThrows(IllegalArgumentException.class, () -> commandArgs.keyValueOptions("set-tag"));
+    }
+}
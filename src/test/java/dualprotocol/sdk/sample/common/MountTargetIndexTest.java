@@ -0,0 +1,113 @@
+// Copyright (c) Microsoft and contributors.  All rights reserved.
+//
+// This source code is licensed under the MIT license found in the
+// LICENSE file in the root directory of this source tree.
+
+package dualprotocol.sdk.sample.common;
+
+import com.azure.core.management.serializer.SerializerFactory;
+import com.azure.core.util.serializer.SerializerEncoding;
+import com.azure.resourcemanager.netapp.fluent.models.VolumeInner;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MountTargetIndexTest
+{
+    private static final String POOL_ID = "/subscriptions/00000000-0000-0000-0000-000000000000/resourceGroups/rg"
+            + "/providers/Microsoft.NetApp/netAppAccounts/account1/capacityPools/pool1";
+    private static final String SUBNET_ID = "/subscriptions/00000000-0000-0000-0000-000000000000/resourceGroups/rg"
+            + "/providers/Microsoft.Network/virtualNetworks/vnet/subnets/anf";
+
+    @Test
+    void updateIndexesEveryKey()
+    {
+        MountTargetIndex index = new MountTargetIndex();
+
+        assertTrue(index.update(volume("vol1", "vol1-path", "10.0.0.4", "smb-1a2b.contoso.com")));
+
+        assertEquals(1, index.size());
+        assertEquals(POOL_ID + "/volumes/vol1", index.findByIpAddress("10.0.0.4").get(0).getId());
+        assertEquals(1, index.findBySmbServerFqdn("SMB-1A2B.Contoso.com").size());
+        assertEquals(1, index.findByCreationToken("VOL1-PATH").size());
+        assertEquals(1, index.findBySubnetId(SUBNET_ID.toUpperCase()).size());
+        assertEquals("vol1", index.findBySubnetId(SUBNET_ID).get(0).getVolume());
+    }
+
+    @Test
+    void updateWithSameValuesIsNotAChange()
+    {
+        MountTargetIndex index = new MountTargetIndex();
+        index.update(volume("vol1", "vol1-path", "10.0.0.4", null));
+
+        assertFalse(index.update(volume("vol1", "vol1-path", "10.0.0.4", null)));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void updateReplacesPreviousKeys()
+    {
+        MountTargetIndex index = new MountTargetIndex();
+        index.update(volume("vol1", "vol1-path", "10.0.0.4", null));
+
+        assertTrue(index.update(volume("vol1", "vol1-path", "10.0.0.5", null)));
+
+        assertTrue(index.findByIpAddress("10.0.0.4").isEmpty());
+        assertEquals(1, index.findByIpAddress("10.0.0.5").size());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void removeDropsEveryKey()
+    {
+        MountTargetIndex index = new MountTargetIndex();
+        index.update(volume("vol1", "vol1-path", "10.0.0.4", "smb-1a2b.contoso.com"));
+        index.update(volume("vol2", "vol2-path", "10.0.0.6", null));
+
+        assertTrue(index.remove((POOL_ID + "/volumes/VOL1").toUpperCase()));
+        assertFalse(index.remove(POOL_ID + "/volumes/vol1"));
+
+        assertEquals(1, index.size());
+        assertTrue(index.findByIpAddress("10.0.0.4").isEmpty());
+        assertTrue(index.findBySmbServerFqdn("smb-1a2b.contoso.com").isEmpty());
+        assertTrue(index.findByCreationToken("vol1-path").isEmpty());
+        assertEquals("vol2", index.findBySubnetId(SUBNET_ID).get(0).getVolume());
+    }
+
+    @Test
+    void findTriesEveryKey()
+    {
+        MountTargetIndex index = new MountTargetIndex();
+        index.update(volume("vol1", "vol1-path", "10.0.0.4", "smb-1a2b.contoso.com"));
+        index.update(volume("vol2", "vol2-path", "10.0.0.6", null));
+
+        assertEquals("vol1", index.find("10.0.0.4").get(0).getVolume());
+        assertEquals("vol1", index.find("smb-1a2b.contoso.com").get(0).getVolume());
+        assertEquals("vol2", index.find("vol2-path").get(0).getVolume());
+        assertEquals(2, index.find(SUBNET_ID).size());
+        assertTrue(index.find("10.0.0.99").isEmpty());
+        assertTrue(index.find(" ").isEmpty());
+    }
+
+    // Ids and mount targets are read-only on VolumeInner, so volumes are built the way the SDK builds them from a response
+    private static VolumeInner volume(String name, String creationToken, String ipAddress, String smbServerFqdn)
+    {
+        String json = "{\"id\": \"" + POOL_ID + "/volumes/" + name + "\", \"location\": \"westus\", \"properties\": {"
+                + "\"creationToken\": \"" + creationToken + "\", \"subnetId\": \"" + SUBNET_ID + "\", \"usageThreshold\": 107374182400, "
+                + "\"mountTargets\": [{\"fileSystemId\": \"00000000-0000-0000-0000-000000000001\", \"ipAddress\": \"" + ipAddress + "\""
+                + (smbServerFqdn == null ? "" : ", \"smbServerFqdn\": \"" + smbServerFqdn + "\"") + "}]}}";
+
+        try
+        {
+            return SerializerFactory.createDefaultManagementSerializerAdapter().deserialize(json, VolumeInner.class, SerializerEncoding.JSON);
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+}